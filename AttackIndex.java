@@ -0,0 +1,71 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed tables of which positions attack each other on a board of a given size.
+ * Positions are numbered (size * row) + column. The tables are built once per size and shared
+ * by every BDD construction, so generating the rules allocates nothing.
+ * The returned arrays are shared and must not be modified.
+ */
+public final class AttackIndex {
+
+    private static final ConcurrentHashMap<Integer, AttackIndex> INDICES = new ConcurrentHashMap<>();
+
+    private final int[][] rows;
+    private final int[][] attacked;
+
+    private AttackIndex(int size) {
+        rows = new int[size][size];
+        attacked = new int[size * size][];
+
+        for (int row = 0; row < size; row++)
+            for (int column = 0; column < size; column++)
+                rows[row][column] = (size * row) + column;
+
+        int[] buffer = new int[4 * size];
+        for (int row = 0; row < size; row++)
+            for (int column = 0; column < size; column++) {
+                int count = 0;
+
+                for (int other = 0; other < size; other++) {
+                    // Same row and same column
+                    if (other != column)
+                        buffer[count++] = (size * row) + other;
+                    if (other != row)
+                        buffer[count++] = (size * other) + column;
+
+                    // Both diagonals through the position, in the row of the other position
+                    int offset = other - row;
+                    if (offset != 0) {
+                        if (column + offset >= 0 && column + offset < size)
+                            buffer[count++] = (size * other) + column + offset;
+                        if (column - offset >= 0 && column - offset < size)
+                            buffer[count++] = (size * other) + column - offset;
+                    }
+                }
+
+                attacked[(size * row) + column] = Arrays.copyOf(buffer, count);
+            }
+    }
+
+    /**
+     * Returns the shared index for the board size
+     */
+    public static AttackIndex forSize(int size) {
+        return INDICES.computeIfAbsent(size, AttackIndex::new);
+    }
+
+    /**
+     * Returns the positions of the row
+     */
+    public int[] row(int row) {
+        return rows[row];
+    }
+
+    /**
+     * Returns the positions in the same row, column or diagonal as the position, except the position itself
+     */
+    public int[] attacked(int position) {
+        return attacked[position];
+    }
+}
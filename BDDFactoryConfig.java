@@ -0,0 +1,247 @@
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.javabdd.*;
+
+/**
+ * Settings for the BDD factory used by the logic.
+ * A value of 0 means that the setting is derived from the board size, or left at the factory default.
+ *
+ * The settings can be overridden with the system properties
+ * queens.bdd.nodes, queens.bdd.cache, queens.bdd.cacheRatio, queens.bdd.maxIncrease and queens.bdd.backend.
+ * The backend is one of java, micro, jdd, buddy, cudd and cal. When a backend cannot be loaded,
+ * e.g. because its native library is missing, the pure Java JFactory is used instead.
+ *
+ * The native backends buddy, cudd and cal allow only one live factory per process. With one of them the logic keeps
+ * a single base BDD and refuses the parallel, speculative and shared modes, which need a factory per thread or size.
+ */
+public class BDDFactoryConfig {
+
+    private final BDDSizing sizing;
+    private final double cacheRatio;
+    private final int maxIncrease;
+    private final Backend backend;
+
+    // Backends that have been reported as missing, so the warning is only printed once
+    private static final Set<Backend> reportedMissing = ConcurrentHashMap.newKeySet();
+    // Backends that have created a factory, so a later failure is not mistaken for a missing library
+    private static final Set<Backend> loaded = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param nodeTableSize The initial number of nodes in the node table. 0 to derive it from the board size
+     * @param cacheSize The initial size of the operation caches. 0 to derive it from the node table size
+     * @param cacheRatio The ratio between the node table and the caches when the table grows. 0 to use the factory default
+     * @param maxIncrease The maximum number of nodes added when the node table grows. 0 to use the factory default
+     */
+    public BDDFactoryConfig(int nodeTableSize, int cacheSize, double cacheRatio, int maxIncrease) {
+        this(nodeTableSize, cacheSize, cacheRatio, maxIncrease, Backend.JAVA);
+    }
+
+    /**
+     * @param backend The BDD package the factories are created with
+     */
+    public BDDFactoryConfig(int nodeTableSize, int cacheSize, double cacheRatio, int maxIncrease, Backend backend) {
+        this(new BDDSizing(nodeTableSize, cacheSize), cacheRatio, maxIncrease, backend);
+    }
+
+    private BDDFactoryConfig(BDDSizing sizing, double cacheRatio, int maxIncrease, Backend backend) {
+        this.sizing = sizing;
+        this.cacheRatio = cacheRatio;
+        this.maxIncrease = maxIncrease;
+        this.backend = backend;
+    }
+
+    /**
+     * Returns a configuration where every setting is derived from the board size
+     */
+    public static BDDFactoryConfig defaults() {
+        return new BDDFactoryConfig(0, 0, 0, 0);
+    }
+
+    /**
+     * Returns a configuration read from the system properties. Missing properties are derived from the board size
+     */
+    public static BDDFactoryConfig fromSystemProperties() {
+        return new BDDFactoryConfig(BDDSizing.fromSystemProperties(),
+                                    Double.parseDouble(System.getProperty("queens.bdd.cacheRatio", "0")),
+                                    Integer.getInteger("queens.bdd.maxIncrease", 0),
+                                    Backend.fromName(System.getProperty("queens.bdd.backend", "java")));
+    }
+
+    /**
+     * Returns the same configuration with another backend
+     */
+    public BDDFactoryConfig withBackend(Backend backend) {
+        return new BDDFactoryConfig(sizing, cacheRatio, maxIncrease, backend);
+    }
+
+    /**
+     * Creates a factory of the configured backend sized for the board.
+     * If the backend is not available, a JFactory is created and a warning is printed the first time.
+     * A backend with a single instance that has loaded before is not replaced by JFactory, since the previous
+     * factory is still alive, so the numbers of two backends are never mixed
+     * @param boardSize The size of the board
+     * @return A new BDD factory without variables
+     * @throws IllegalStateException If the single factory of the backend has not been released with done()
+     */
+    public BDDFactory createFactory(int boardSize) {
+        BDDFactory factory = backend.init(nodeTableSize(boardSize), cacheSize(boardSize));
+
+        if (factory != null) {
+            loaded.add(backend);
+        } else if (backend.isSingleInstance() && loaded.contains(backend)) {
+            throw new IllegalStateException("The BDD backend " + backend.getName()
+                                            + " allows one factory at a time, call done() on the previous factory first");
+        } else {
+            if (reportedMissing.add(backend))
+                System.err.println("The BDD backend " + backend.getName() + " is not available, using java instead");
+
+            factory = JFactory.init(nodeTableSize(boardSize), cacheSize(boardSize));
+        }
+
+        if (cacheRatio > 0)
+            factory.setCacheRatio(cacheRatio);
+        if (maxIncrease > 0)
+            factory.setMaxIncrease(maxIncrease);
+
+        return factory;
+    }
+
+    /**
+     * Returns the initial node table size for the board size
+     * @param boardSize The size of the board
+     */
+    public int nodeTableSize(int boardSize) {
+        return sizing.nodeTableSize(boardSize);
+    }
+
+    /**
+     * Returns the initial size of the operation caches for the board size
+     * @param boardSize The size of the board
+     */
+    public int cacheSize(int boardSize) {
+        return sizing.cacheSize(boardSize);
+    }
+
+    /**
+     * Returns the node table and cache sizes, e.g. for a BDD package that is not used through JavaBDD
+     */
+    public BDDSizing getSizing() {
+        return sizing;
+    }
+
+    public double getCacheRatio() {
+        return cacheRatio;
+    }
+
+    public int getMaxIncrease() {
+        return maxIncrease;
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Checks that the backend allows several live factories
+     * @param use What needs them, for the message, e.g. "the parallel evaluation"
+     * @throws IllegalArgumentException If the backend allows only one factory at a time
+     */
+    public void requireSeveralFactories(String use) {
+        if (backend.isSingleInstance())
+            throw new IllegalArgumentException("The BDD backend " + backend.getName()
+                                               + " allows only one factory at a time, so " + use + " cannot use it");
+    }
+
+    @Override
+    public String toString() {
+        return sizing + ", cacheRatio=" + cacheRatio + ", maxIncrease=" + maxIncrease + ", backend=" + backend.getName();
+    }
+
+    /**
+     * The BDD packages that can be used through the JavaBDD interface.
+     * The native packages BuDDy, CUDD and CAL only allow one instance active at a time, so the previous factory
+     * has to be released with done() before another one is created
+     */
+    public enum Backend {
+        /** The pure Java port of BuDDy, always available */
+        JAVA("java", "net.sf.javabdd.JFactory", false),
+        /** A small pure Java factory with less memory per node */
+        MICRO("micro", "net.sf.javabdd.MicroFactory", false),
+        /** The pure Java JDD library, needs jdd.jar on the class path */
+        JDD("jdd", "net.sf.javabdd.JDDFactory", false),
+        /** The native BuDDy library, needs libbuddy. One factory at a time */
+        BUDDY("buddy", "net.sf.javabdd.BuDDyFactory", true),
+        /** The native CUDD library, needs libcudd. One factory at a time */
+        CUDD("cudd", "net.sf.javabdd.CUDDFactory", true),
+        /** The native CAL library, needs libcal. One factory at a time */
+        CAL("cal", "net.sf.javabdd.CALFactory", true);
+
+        private final String name;
+        private final String factoryClass;
+        private final boolean singleInstance;
+
+        Backend(String name, String factoryClass, boolean singleInstance) {
+            this.name = name;
+            this.factoryClass = factoryClass;
+            this.singleInstance = singleInstance;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns whether only one factory of the backend can be alive in the process
+         */
+        public boolean isSingleInstance() {
+            return singleInstance;
+        }
+
+        /**
+         * Returns the backend with the name, e.g. buddy
+         */
+        public static Backend fromName(String name) {
+            for (Backend backend : values())
+                if (backend.name.equalsIgnoreCase(name))
+                    return backend;
+
+            throw new IllegalArgumentException("Unknown BDD backend: " + name);
+        }
+
+        /**
+         * Returns the backends that can be loaded on this machine
+         */
+        public static Set<Backend> available() {
+            Set<Backend> available = EnumSet.noneOf(Backend.class);
+            for (Backend backend : values()) {
+                BDDFactory factory = backend.init(1000, 100);
+                if (factory != null) {
+                    available.add(backend);
+                    factory.done();
+                }
+            }
+            return available;
+        }
+
+        /**
+         * Creates a factory of this backend
+         * @return The factory, or null if the backend could not be loaded
+         */
+        private BDDFactory init(int nodeTableSize, int cacheSize) {
+            try {
+                // BDDFactory.init takes the class name of any factory and falls back to JFactory itself
+                // when the package cannot be loaded, so the class of the result tells if it worked
+                BDDFactory factory = BDDFactory.init(factoryClass, nodeTableSize, cacheSize);
+                if (factory.getClass().getName().equals(factoryClass))
+                    return factory;
+
+                factory.done();
+                return null;
+            } catch (RuntimeException | LinkageError e) {
+                return null;
+            }
+        }
+    }
+}
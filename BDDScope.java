@@ -0,0 +1,107 @@
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.sf.javabdd.*;
+
+/**
+ * Frees the BDD handles created in a block, so intermediate results are given back to the factory
+ * and its garbage collector does not have to keep their nodes alive.
+ *
+ * try (BDDScope scope = new BDDScope(references)) {
+ *     BDD queen = scope.track(factory.ithVar(var));
+ *     BDD result = scope.track(bdd.restrict(queen));
+ *     return scope.keep(result);
+ * }
+ *
+ * Every scope counts its handles in the References of its owner, e.g. one logic or one worker of a factory.
+ * Handles that outlive a block are counted with owned and given back with release.
+ * Every handle counted in this way is live until it is freed, so a growing number of live references
+ * means that handles are lost without being freed.
+ */
+public final class BDDScope implements AutoCloseable {
+
+    private final References references;
+    private final ArrayList<BDD> handles = new ArrayList<>(4);
+
+    /**
+     * @param references The counters of the owner of the handles
+     */
+    public BDDScope(References references) {
+        this.references = references;
+    }
+
+    /**
+     * Frees the handle when the scope is closed
+     * @return The handle
+     */
+    public BDD track(BDD bdd) {
+        references.counted.increment();
+        handles.add(bdd);
+        return bdd;
+    }
+
+    /**
+     * Hands the handle out of the scope. The caller becomes the owner and has to release it
+     * @return The handle
+     */
+    public BDD keep(BDD bdd) {
+        for (int i = handles.size() - 1; i >= 0; i--)
+            if (handles.get(i) == bdd) {
+                handles.remove(i);
+                return bdd;
+            }
+
+        throw new IllegalArgumentException("The BDD is not tracked by this scope");
+    }
+
+    /**
+     * Frees every handle that was not kept
+     */
+    @Override
+    public void close() {
+        for (int i = handles.size() - 1; i >= 0; i--)
+            references.release(handles.get(i));
+
+        handles.clear();
+    }
+
+    /**
+     * Counts the handles of one owner, so the live references of a logic are not mixed up with those
+     * of other logics or threads in the same JVM
+     */
+    public static final class References {
+        private final LongAdder counted = new LongAdder();
+        private final LongAdder freed = new LongAdder();
+
+        /**
+         * Counts a handle that is owned outside of a scope
+         * @return The handle
+         */
+        public BDD owned(BDD bdd) {
+            counted.increment();
+            return bdd;
+        }
+
+        /**
+         * Frees a counted handle
+         */
+        public void release(BDD bdd) {
+            bdd.free();
+            freed.increment();
+        }
+
+        /**
+         * Returns the number of counted handles that have not been freed
+         */
+        public long getLiveReferences() {
+            return counted.sum() - freed.sum();
+        }
+
+        /**
+         * Returns the number of handles that have been counted since the owner was created
+         */
+        public long getCountedReferences() {
+            return counted.sum();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * The initial sizes of the node table and the operation caches for a board size.
+ * It does not depend on JavaBDD, so BDD packages of our own like CompactBDD are sized the same way as the factories
+ * of BDDFactoryConfig. A value of 0 means that the size is derived from the board size.
+ *
+ * The sizes can be overridden with the system properties queens.bdd.nodes and queens.bdd.cache.
+ */
+public class BDDSizing {
+
+    private static final int MIN_NODE_TABLE_SIZE = 10000;
+    private static final int MAX_INITIAL_NODE_TABLE_SIZE = 8000000;
+    private static final int CACHE_DIVISOR = 10; // Same node/cache ratio as the original 2000000/200000 setup
+
+    private final int nodeTableSize;
+    private final int cacheSize;
+
+    /**
+     * @param nodeTableSize The initial number of nodes in the node table. 0 to derive it from the board size
+     * @param cacheSize The initial size of the operation caches. 0 to derive it from the node table size
+     */
+    public BDDSizing(int nodeTableSize, int cacheSize) {
+        this.nodeTableSize = nodeTableSize;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Returns the sizes read from the system properties. Missing properties are derived from the board size
+     */
+    public static BDDSizing fromSystemProperties() {
+        return new BDDSizing(Integer.getInteger("queens.bdd.nodes", 0), Integer.getInteger("queens.bdd.cache", 0));
+    }
+
+    /**
+     * Returns the initial node table size for the board size.
+     * The size of the queens BDD grows roughly by a factor 2.5 per extra row, so the table follows that
+     * up to a cap where it is left to the factory to grow the table
+     * @param boardSize The size of the board
+     */
+    public int nodeTableSize(int boardSize) {
+        if (nodeTableSize > 0)
+            return nodeTableSize;
+
+        double estimate = MIN_NODE_TABLE_SIZE * Math.pow(2.5, Math.max(0, boardSize - 5));
+        return (int) Math.min(MAX_INITIAL_NODE_TABLE_SIZE, estimate);
+    }
+
+    /**
+     * Returns the initial size of the operation caches for the board size
+     * @param boardSize The size of the board
+     */
+    public int cacheSize(int boardSize) {
+        if (cacheSize > 0)
+            return cacheSize;
+
+        return nodeTableSize(boardSize) / CACHE_DIVISOR;
+    }
+
+    @Override
+    public String toString() {
+        return "nodes=" + nodeTableSize + ", cache=" + cacheSize;
+    }
+}
@@ -0,0 +1,212 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+import net.sf.javabdd.*;
+
+/**
+ * Saves and loads BDDs in a compact binary file, so a built BDD can be reused by the next run.
+ *
+ * The file starts with a header of magic number, format version, board size, a hash of the variable ordering,
+ * node count, root index and a CRC32 of the node table. The node table follows with three ints per node
+ * (variable, low index, high index), children before parents. Index 0 is FALSE and index 1 is TRUE.
+ * Files with another version, size or ordering, or a wrong checksum are rejected.
+ *
+ * A BDD handed to the factory of another thread is copied in the text format of BDDFactory.save with
+ * toText and fromText instead, since it does not outlive the run.
+ */
+public class BDDSnapshot {
+
+    private static final int MAGIC = 0x51424444; // "QBDD"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES + Long.BYTES;
+
+    private BDDSnapshot() {
+    }
+
+    /**
+     * Returns the BDD in the text format of BDDFactory.save
+     * @param bdd The BDD to copy. It is not consumed
+     */
+    public static String toText(BDDFactory factory, BDD bdd) {
+        try {
+            var out = new StringWriter();
+            var writer = new BufferedWriter(out);
+            factory.save(writer, bdd);
+            writer.flush();
+            return out.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Loads a BDD written by toText into the factory
+     * @param factory A factory with at least the variables of the BDD
+     * @return A BDD owned by the caller
+     */
+    public static BDD fromText(BDDFactory factory, String text) throws IOException {
+        return factory.load(new BufferedReader(new StringReader(text)));
+    }
+
+    /**
+     * Returns the file used for the snapshot of the board size in the directory
+     */
+    public static Path fileFor(Path directory, int size) {
+        return directory.resolve("queens-" + size + ".bdd");
+    }
+
+    /**
+     * Writes the BDD to the file. The file is replaced atomically, so a reader never sees a partial file
+     * @param file The file to write
+     * @param bdd The BDD to save. It is not consumed
+     * @param size The size of the board
+     * @param variables The variable id of each position
+     */
+    public static void save(Path file, BDD bdd, int size, int[] variables) throws IOException {
+        var indices = new HashMap<BDD, Integer>();
+        var nodes = new ByteArrayOutputStream();
+        int root;
+
+        try (var nodeOut = new DataOutputStream(nodes)) {
+            root = writeNodes(bdd, indices, nodeOut);
+        } finally {
+            for (BDD node : indices.keySet())
+                node.free();
+        }
+
+        byte[] nodeBytes = nodes.toByteArray();
+        var crc = new CRC32();
+        crc.update(nodeBytes);
+
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(Arrays.hashCode(variables));
+            out.writeInt(nodeBytes.length / (3 * Integer.BYTES));
+            out.writeInt(root);
+            out.writeLong(crc.getValue());
+            out.write(nodeBytes);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a BDD from the file by memory mapping it
+     * @param file The file to read
+     * @param factory The factory to create the BDD in. The variables must already be allocated
+     * @param size The size of the board the BDD must be for
+     * @param variables The variable ordering the BDD must be for
+     * @return The loaded BDD, or null if the file is missing or does not match the board
+     */
+    public static BDD load(Path file, BDDFactory factory, int size, int[] variables) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) < HEADER_BYTES)
+            return null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (mapped.getInt() != MAGIC || mapped.getInt() != VERSION
+                    || mapped.getInt() != size || mapped.getInt() != Arrays.hashCode(variables))
+                return null;
+
+            int nodeCount = mapped.getInt();
+            int root = mapped.getInt();
+            long checksum = mapped.getLong();
+
+            if (nodeCount < 0 || mapped.remaining() != nodeCount * 3L * Integer.BYTES || root < 0 || root >= nodeCount + 2)
+                return null;
+
+            ByteBuffer nodeBytes = mapped.slice();
+            var crc = new CRC32();
+            crc.update(nodeBytes.duplicate());
+            if (crc.getValue() != checksum)
+                return null;
+
+            return readNodes(nodeBytes.asIntBuffer(), nodeCount, root, factory);
+        }
+    }
+
+    /**
+     * Writes the nodes below and including the node, children first
+     * @return The index of the node
+     */
+    private static int writeNodes(BDD node, HashMap<BDD, Integer> indices, DataOutputStream out) throws IOException {
+        if (node.isZero())
+            return 0;
+        if (node.isOne())
+            return 1;
+
+        Integer known = indices.get(node);
+        if (known != null)
+            return known;
+
+        BDD low = node.low();
+        BDD high = node.high();
+        int lowIndex = writeNodes(low, indices, out);
+        int highIndex = writeNodes(high, indices, out);
+        low.free();
+        high.free();
+
+        int index = indices.size() + 2;
+        out.writeInt(node.var());
+        out.writeInt(lowIndex);
+        out.writeInt(highIndex);
+        indices.put(node.id(), index);
+
+        return index;
+    }
+
+    /**
+     * Creates the nodes bottom up in the factory
+     */
+    private static BDD readNodes(IntBuffer table, int nodeCount, int root, BDDFactory factory) {
+        BDD[] nodes = new BDD[nodeCount + 2];
+        nodes[0] = factory.zero();
+        nodes[1] = factory.one();
+
+        for (int i = 0; i < nodeCount; i++) {
+            int var = table.get();
+            int low = table.get();
+            int high = table.get();
+
+            if (var < 0 || var >= factory.varNum() || low < 0 || high < 0 || low >= i + 2 || high >= i + 2) {
+                free(nodes);
+                return null;
+            }
+
+            BDD variable = factory.ithVar(var);
+            nodes[i + 2] = variable.ite(nodes[high], nodes[low]);
+            variable.free();
+        }
+
+        BDD result = nodes[root].id();
+        free(nodes);
+        return result;
+    }
+
+    private static void free(BDD[] nodes) {
+        for (BDD node : nodes)
+            if (node != null)
+                node.free();
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Logic for the n-queens problem using bitboards and backtracking instead of a BDD.
+ * Every row is a bit mask over the columns, and a position is decided by searching for a full solution
+ * with and without a queen on it. Solutions found along the way decide many other positions at once,
+ * so most positions never need a search of their own.
+ * Supports boards up to 63 x 63, but it is meant for boards where a full search is cheap (n <= 16).
+ */
+public class BitboardLogic implements IQueensLogic {
+
+    private static final int MAX_SIZE = 63;
+
+    private int size;
+    private int[][] board;
+    private boolean boardDirty;
+    private long fullRow;
+
+    private long[] allowed;     // Columns where a queen may stand in each row during a search
+    private long[] canHaveQueen; // Columns of each row seen with a queen in some solution
+    private long[] canBeEmpty;   // Columns of each row seen without a queen in some solution
+    private int[] solution;      // Column of the queen in each row of the last solution found
+
+    @Override
+    public void initializeBoard(int size) {
+        if (size < 1 || size > MAX_SIZE)
+            throw new IllegalArgumentException("The board size must be between 1 and " + MAX_SIZE);
+
+        this.size = size;
+        board = new int[size][size];
+        fullRow = (1L << size) - 1;
+
+        allowed = new long[size];
+        canHaveQueen = new long[size];
+        canBeEmpty = new long[size];
+        solution = new int[size];
+
+        for (int row = 0; row < size; row++)
+            allowed[row] = fullRow;
+
+        boardDirty = true;
+    }
+
+    @Override
+    public int[][] getBoard() {
+        if (boardDirty) {
+            updateBoard();
+            boardDirty = false;
+        }
+        return board;
+    }
+
+    @Override
+    public void insertQueen(int column, int row) {
+        if (board[column][row] == 0) {
+            allowed[row] &= 1L << column;
+            board[column][row] = 1;
+            boardDirty = true;
+        }
+    }
+
+    /**
+     * Decides every open position by searching for solutions with and without a queen on it
+     */
+    private void updateBoard() {
+        for (int row = 0; row < size; row++) {
+            canHaveQueen[row] = 0;
+            canBeEmpty[row] = 0;
+        }
+
+        if (!solveAndRecord()) {
+            // No solution is left, so a queen cannot be placed anywhere
+            for (int column = 0; column < size; column++)
+                for (int row = 0; row < size; row++)
+                    if (board[column][row] == 0)
+                        board[column][row] = -1;
+            return;
+        }
+
+        for (int row = 0; row < size; row++) {
+            long rowAllowed = allowed[row];
+
+            for (int column = 0; column < size; column++) {
+                if (board[column][row] != 0)
+                    continue;
+
+                long bit = 1L << column;
+
+                if ((canHaveQueen[row] & bit) == 0) {
+                    allowed[row] = rowAllowed & bit;
+                    boolean found = solveAndRecord();
+                    allowed[row] = rowAllowed;
+
+                    if (!found) {
+                        board[column][row] = -1;
+                        continue;
+                    }
+                }
+
+                if ((canBeEmpty[row] & bit) == 0) {
+                    allowed[row] = rowAllowed & ~bit;
+                    boolean found = solveAndRecord();
+                    allowed[row] = rowAllowed;
+
+                    if (!found)
+                        board[column][row] = 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Searches for a solution within the allowed columns and records which positions it decides
+     * @return true if a solution was found
+     */
+    private boolean solveAndRecord() {
+        if (!solve(0, 0, 0, 0))
+            return false;
+
+        for (int row = 0; row < size; row++) {
+            long bit = 1L << solution[row];
+            canHaveQueen[row] |= bit;
+            canBeEmpty[row] |= fullRow & ~bit;
+        }
+        return true;
+    }
+
+    /**
+     * Places a queen in each row from the given row and down using bitwise backtracking
+     * @param row The row to place a queen in
+     * @param columns The columns already taken
+     * @param leftDiagonals The columns attacked in this row along diagonals going down to the left
+     * @param rightDiagonals The columns attacked in this row along diagonals going down to the right
+     * @return true if the remaining rows could be filled
+     */
+    private boolean solve(int row, long columns, long leftDiagonals, long rightDiagonals) {
+        if (row == size)
+            return true;
+
+        long free = allowed[row] & ~(columns | leftDiagonals | rightDiagonals) & fullRow;
+
+        while (free != 0) {
+            long bit = free & -free;
+            free ^= bit;
+
+            if (solve(row + 1, columns | bit, (leftDiagonals | bit) >>> 1, (rightDiagonals | bit) << 1)) {
+                solution[row] = Long.numberOfTrailingZeros(bit);
+                return true;
+            }
+        }
+        return false;
+    }
+}
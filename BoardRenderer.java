@@ -0,0 +1,229 @@
+import java.awt.AlphaComposite;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Draws the board of the GUI from cached images.
+ * The borders, corners and the empty checkerboard are composed once into one image of the screen's format,
+ * and the look of a queen or a blocked position is composed once per square color, all at the current tile size.
+ * Painting a board then copies the part of the static image inside the clip and draws one tile per decided position,
+ * so repainting a single position only touches that position.
+ */
+public class BoardRenderer {
+
+    /** The size of the images in the imgs directory, and the largest tile size */
+    public static final int IMAGE_SIZE = 100;
+    private static final int MIN_TILE_SIZE = 8;
+
+    private static Image[] images; // Loaded once for every board
+    private static final int PART = 0, QUEEN = 1, INVALID = 2, BACKGROUND_WHITE = 3, BACKGROUND_BLACK = 4,
+                             BORDER_LEFT = 5, BORDER_RIGHT = 6, BORDER_TOP = 7, BORDER_BOTTOM = 8,
+                             CORNER_LEFT_TOP = 9, CORNER_LEFT_BOTTOM = 10, CORNER_RIGHT_TOP = 11, CORNER_RIGHT_BOTTOM = 12;
+    private static final String[] IMAGE_FILES = {
+        "maze.png", "queen.png", "invalid.png", "backgroundWhite.png", "backgroundBlack.png",
+        "board_left.png", "board_right.png", "board_top.png", "board_bottom.png",
+        "corner_top_left.png", "corner_bottom_left.png", "corner_top_right.png", "corner_bottom_right.png"
+    };
+
+    private final int size;
+    private int tileSize = IMAGE_SIZE;
+    private BufferedImage staticBoard;
+    // The tiles of a queen and of a blocked position, on a white and on a black square
+    private final BufferedImage[] tiles = new BufferedImage[4];
+
+    /**
+     * @param size The size of the board
+     */
+    public BoardRenderer(int size) throws IOException {
+        this.size = size;
+        loadImages();
+    }
+
+    /**
+     * Loads the images from the class path, or from the imgs directory of the working directory
+     */
+    private static synchronized void loadImages() throws IOException {
+        if (images != null)
+            return;
+
+        Image[] loaded = new Image[IMAGE_FILES.length];
+        for (int i = 0; i < IMAGE_FILES.length; i++) {
+            try (InputStream resource = BoardRenderer.class.getResourceAsStream("/imgs/" + IMAGE_FILES[i])) {
+                loaded[i] = resource != null ? ImageIO.read(resource) : ImageIO.read(new File("imgs", IMAGE_FILES[i]));
+            }
+        }
+        images = loaded;
+    }
+
+    /**
+     * Returns the largest tile size where the board and its border fit in the area, at most the image size
+     */
+    public int fitTileSize(int width, int height) {
+        int fitting = Math.min(width, height) / (size + 2);
+        return Math.max(MIN_TILE_SIZE, Math.min(IMAGE_SIZE, fitting));
+    }
+
+    /**
+     * Sets the size of a position on the screen. The cached images are composed again when it changes
+     */
+    public void setTileSize(int tileSize) {
+        if (tileSize == this.tileSize && staticBoard != null)
+            return;
+
+        this.tileSize = tileSize;
+        staticBoard = null;
+        for (int i = 0; i < tiles.length; i++)
+            tiles[i] = null;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Returns the size of the board with its border
+     */
+    public Dimension getBoardSize() {
+        return new Dimension((size + 2) * tileSize, (size + 2) * tileSize);
+    }
+
+    /**
+     * Returns the area of the position
+     */
+    public Rectangle cellBounds(int column, int row) {
+        return new Rectangle(tileSize + tileSize * column, tileSize + tileSize * row, tileSize, tileSize);
+    }
+
+    /**
+     * Returns the position at the point as column and row, or null if the point is not on the board
+     */
+    public Point cellAt(int x, int y) {
+        int column = Math.floorDiv(x, tileSize) - 1;
+        int row = Math.floorDiv(y, tileSize) - 1;
+        if (column < 0 || column >= size || row < 0 || row >= size)
+            return null;
+
+        return new Point(column, row);
+    }
+
+    /**
+     * Paints the part of the board inside the clip
+     * @param board The board to paint, with 1 for a queen and -1 for a blocked position
+     * @param clip The area to paint, or null for the whole board
+     */
+    public void paint(Graphics2D g, int[][] board, Rectangle clip) {
+        if (staticBoard == null)
+            staticBoard = composeStaticBoard(g.getDeviceConfiguration());
+
+        Rectangle area = clip == null ? new Rectangle(getBoardSize()) : clip.intersection(new Rectangle(getBoardSize()));
+        if (area.isEmpty())
+            return;
+
+        g.drawImage(staticBoard, area.x, area.y, area.x + area.width, area.y + area.height,
+                    area.x, area.y, area.x + area.width, area.y + area.height, null);
+
+        int firstColumn = Math.max(0, area.x / tileSize - 1);
+        int lastColumn = Math.min(size - 1, (area.x + area.width - 1) / tileSize - 1);
+        int firstRow = Math.max(0, area.y / tileSize - 1);
+        int lastRow = Math.min(size - 1, (area.y + area.height - 1) / tileSize - 1);
+
+        for (int column = firstColumn; column <= lastColumn; column++)
+            for (int row = firstRow; row <= lastRow; row++)
+                if (board[column][row] != 0)
+                    g.drawImage(tile(g.getDeviceConfiguration(), board[column][row], (column + row) % 2 == 0),
+                                tileSize + tileSize * column, tileSize + tileSize * row, null);
+    }
+
+    /**
+     * Paints a queen on the position, e.g. for a click that is waiting to be inserted
+     */
+    public void paintQueen(Graphics2D g, int column, int row) {
+        g.drawImage(tile(g.getDeviceConfiguration(), 1, (column + row) % 2 == 0),
+                    tileSize + tileSize * column, tileSize + tileSize * row, null);
+    }
+
+    /**
+     * Returns the cached tile of the value on a white or black square
+     */
+    private BufferedImage tile(GraphicsConfiguration config, int value, boolean white) {
+        int index = (value == 1 ? 0 : 2) + (white ? 0 : 1);
+        if (tiles[index] == null) {
+            BufferedImage tile = createImage(config, tileSize, tileSize, Transparency.OPAQUE);
+            Graphics2D g = prepare(tile);
+            draw(g, images[white ? BACKGROUND_WHITE : BACKGROUND_BLACK], 0, 0);
+            draw(g, images[value == 1 ? QUEEN : INVALID], 0, 0);
+            draw(g, images[PART], 0, 0);
+            g.dispose();
+            tiles[index] = tile;
+        }
+        return tiles[index];
+    }
+
+    /**
+     * Composes the borders, corners and the empty positions of the board into one image
+     */
+    private BufferedImage composeStaticBoard(GraphicsConfiguration config) {
+        Dimension boardSize = getBoardSize();
+        BufferedImage board = createImage(config, boardSize.width, boardSize.height, Transparency.TRANSLUCENT);
+        Graphics2D g = prepare(board);
+        int far = tileSize + tileSize * size;
+
+        for (int i = 0; i < size; i++) {
+            int offset = tileSize + tileSize * i;
+            draw(g, images[BORDER_LEFT], 0, offset);
+            draw(g, images[BORDER_RIGHT], far, offset);
+            draw(g, images[BORDER_TOP], offset, 0);
+            draw(g, images[BORDER_BOTTOM], offset, far);
+        }
+        draw(g, images[CORNER_LEFT_TOP], 0, 0);
+        draw(g, images[CORNER_LEFT_BOTTOM], 0, far);
+        draw(g, images[CORNER_RIGHT_TOP], far, 0);
+        draw(g, images[CORNER_RIGHT_BOTTOM], far, far);
+
+        for (int column = 0; column < size; column++)
+            for (int row = 0; row < size; row++) {
+                int x = tileSize + tileSize * column;
+                int y = tileSize + tileSize * row;
+                draw(g, images[(column + row) % 2 == 0 ? BACKGROUND_WHITE : BACKGROUND_BLACK], x, y);
+                draw(g, images[PART], x, y);
+            }
+
+        g.dispose();
+        return board;
+    }
+
+    private void draw(Graphics2D g, Image image, int x, int y) {
+        g.drawImage(image, x, y, tileSize, tileSize, null);
+    }
+
+    private static Graphics2D prepare(BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        return g;
+    }
+
+    /**
+     * Creates an image in the format of the screen, so it can be copied to the screen without conversion
+     */
+    private static BufferedImage createImage(GraphicsConfiguration config, int width, int height, int transparency) {
+        if (config != null && !GraphicsEnvironment.isHeadless())
+            return config.createCompatibleImage(width, height, transparency);
+
+        return new BufferedImage(width, height, transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    }
+}
@@ -0,0 +1,73 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The eight symmetries of a square board: the rotations and the mirrorings.
+ * The queens rules are the same under every symmetry, so if the queens on the board are kept in place by a
+ * symmetry, every position has the same value as its image. Positions are numbered (size * row) + column.
+ */
+public enum BoardSymmetry {
+    IDENTITY,
+    ROTATE_90,
+    ROTATE_180,
+    ROTATE_270,
+    MIRROR_HORIZONTAL,
+    MIRROR_VERTICAL,
+    MIRROR_DIAGONAL,
+    MIRROR_ANTI_DIAGONAL;
+
+    /**
+     * Returns the image of the position on a board of the size
+     */
+    public int apply(int position, int size) {
+        int column = position % size;
+        int row = position / size;
+        int last = size - 1;
+
+        switch (this) {
+            case ROTATE_90:            return (size * column) + last - row;
+            case ROTATE_180:           return (size * (last - row)) + last - column;
+            case ROTATE_270:           return (size * (last - column)) + row;
+            case MIRROR_HORIZONTAL:    return (size * (last - row)) + column;
+            case MIRROR_VERTICAL:      return (size * row) + last - column;
+            case MIRROR_DIAGONAL:      return (size * column) + row;
+            case MIRROR_ANTI_DIAGONAL: return (size * (last - column)) + last - row;
+            default:                   return position;
+        }
+    }
+
+    /**
+     * Returns the symmetries that map every queen on the board to a queen. They always include the identity
+     * @param board The board with 1 for a queen
+     */
+    public static List<BoardSymmetry> preservedBy(int[][] board) {
+        int size = board.length;
+        var preserved = new ArrayList<BoardSymmetry>();
+
+        for (BoardSymmetry symmetry : values()) {
+            boolean keepsQueens = true;
+
+            for (int position = 0; position < size * size && keepsQueens; position++)
+                if (board[position % size][position / size] == 1) {
+                    int image = symmetry.apply(position, size);
+                    keepsQueens = board[image % size][image / size] == 1;
+                }
+
+            if (keepsQueens)
+                preserved.add(symmetry);
+        }
+
+        return preserved;
+    }
+
+    /**
+     * Returns the lowest numbered position that the symmetries map the position to
+     */
+    public static int representative(int position, int size, List<BoardSymmetry> symmetries) {
+        int representative = position;
+        for (BoardSymmetry symmetry : symmetries)
+            representative = Math.min(representative, symmetry.apply(position, size));
+
+        return representative;
+    }
+}
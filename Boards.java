@@ -0,0 +1,56 @@
+/**
+ * Helpers for boards stored as board[column][row], shared by the logics, the evaluators, the GUI and the benchmarks
+ */
+public final class Boards {
+
+    private Boards() {
+    }
+
+    /**
+     * Returns a copy of the board that shares no arrays with it
+     */
+    public static int[][] copy(int[][] board) {
+        int[][] copy = new int[board.length][];
+        for (int column = 0; column < board.length; column++)
+            copy[column] = board[column].clone();
+
+        return copy;
+    }
+
+    /**
+     * Finds the first solution of the n-queens problem by backtracking, with the rows and columns tried in order,
+     * so a sequence of moves from it never hits an illegal position
+     * @return The column of the queen in each row
+     */
+    public static int[] firstSolution(int size) {
+        int[] columns = new int[size];
+        int row = 0;
+        columns[0] = -1;
+
+        while (row >= 0 && row < size) {
+            columns[row]++;
+            while (columns[row] < size && attacked(columns, row))
+                columns[row]++;
+
+            if (columns[row] == size) {
+                row--;
+            } else if (++row < size) {
+                columns[row] = -1;
+            }
+        }
+
+        if (row < 0)
+            throw new IllegalArgumentException("There is no solution for n=" + size);
+        return columns;
+    }
+
+    /**
+     * Checks if the queen in the row is attacked by a queen in one of the rows above it
+     */
+    private static boolean attacked(int[] columns, int row) {
+        for (int other = 0; other < row; other++)
+            if (columns[other] == columns[row] || Math.abs(columns[other] - columns[row]) == row - other)
+                return true;
+        return false;
+    }
+}
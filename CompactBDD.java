@@ -0,0 +1,470 @@
+import java.util.Arrays;
+
+/**
+ * A small reduced ordered BDD package with only the operations the queens logic needs.
+ * Nodes are plain int ids into primitive arrays instead of BDD objects, the unique table is open addressed,
+ * and the operation caches are direct mapped arrays that are overwritten on a collision.
+ *
+ * The variable order is the order of the variable ids. Node 0 is FALSE and node 1 is TRUE.
+ * Nodes are kept alive with ref and given back with deref. When the node table runs low at the start of an
+ * operation, a mark-and-sweep collection frees every node that is not reachable from a referenced node
+ * or from the operands of the operation. The result of an operation must therefore be referenced before
+ * another operation is started, unless it is only needed as an operand of that operation.
+ */
+public final class CompactBDD {
+
+    public static final int FALSE = 0;
+    public static final int TRUE = 1;
+
+    private static final int OP_AND = 0;
+    private static final int OP_OR = 1;
+    private static final int OP_IMP = 2;
+    private static final int OP_RESTRICT = 3;
+
+    private static final int MARK = 0x80000000;
+    private static final int FREE = -1;
+    private static final int MIN_FREE_PERCENT = 20;     // Collect when fewer nodes than this are free
+    private static final int MIN_RECLAIMED_PERCENT = 40; // Grow when a collection frees less than this
+    private static final int CACHE_DIVISOR = 4;          // Nodes per cache entry at most
+
+    private final int varNum;
+
+    // Node table. The level of a free node is FREE and its low is the next free node
+    private int[] level;
+    private int[] low;
+    private int[] high;
+    private int[] refs;
+    private int capacity;
+    private int freeList;
+    private int freeCount;
+
+    // Open addressed unique table of node ids, 0 marks an empty slot since FALSE is never stored
+    private int[] unique;
+    private int uniqueMask;
+
+    // Direct mapped cache of apply and restrict results, with the operation, both operands and the result.
+    // It grows with the node table, so it never has fewer entries than a quarter of the nodes
+    private int[] cache;
+    private int cacheMask;
+
+    private int gcCount;
+    private long cacheHits;
+    private long cacheMisses;
+
+    /**
+     * @param varNum The number of variables
+     * @param nodeTableSize The initial number of nodes. The table grows when it is full
+     * @param cacheSize The number of entries in the operation cache. Rounded up to a power of two
+     */
+    public CompactBDD(int varNum, int nodeTableSize, int cacheSize) {
+        this.varNum = varNum;
+
+        resizeCache(cacheSize);
+        allocate(Math.max(16, nodeTableSize));
+    }
+
+    /************************************
+     ******** Operations ****************
+     ***********************************/
+
+    /**
+     * Returns the BDD that is true when the variable is true
+     */
+    public int ithVar(int var) {
+        prepare(TRUE, FALSE);
+        return makeNode(var, FALSE, TRUE);
+    }
+
+    /**
+     * Returns the BDD that is true when the variable is false
+     */
+    public int nithVar(int var) {
+        prepare(TRUE, FALSE);
+        return makeNode(var, TRUE, FALSE);
+    }
+
+    public int and(int a, int b) {
+        prepare(a, b);
+        return apply(OP_AND, a, b);
+    }
+
+    public int or(int a, int b) {
+        prepare(a, b);
+        return apply(OP_OR, a, b);
+    }
+
+    public int imp(int a, int b) {
+        prepare(a, b);
+        return apply(OP_IMP, a, b);
+    }
+
+    /**
+     * Returns the BDD with the variable fixed to the value
+     */
+    public int restrict(int bdd, int var, boolean value) {
+        prepare(bdd, TRUE);
+        return restrictRec(bdd, value ? var : ~var);
+    }
+
+    public boolean isZero(int bdd) {
+        return bdd == FALSE;
+    }
+
+    public boolean isOne(int bdd) {
+        return bdd == TRUE;
+    }
+
+    /**
+     * Returns the number of assignments of all variables that make the BDD true
+     */
+    public double satCount(int bdd) {
+        double[] fractions = new double[capacity];
+        Arrays.fill(fractions, -1);
+        return satFraction(bdd, fractions) * Math.pow(2, varNum);
+    }
+
+    /**
+     * Returns the number of nodes reachable from the BDD, not counting the terminals
+     */
+    public int nodeCount(int bdd) {
+        int count = mark(bdd);
+        unmark(bdd);
+        return count;
+    }
+
+    /************************************
+     ******** Node access ***************
+     ***********************************/
+
+    /**
+     * Returns the variable of the node, or the number of variables for a terminal
+     */
+    public int var(int node) {
+        return level[node];
+    }
+
+    public int low(int node) {
+        return low[node];
+    }
+
+    public int high(int node) {
+        return high[node];
+    }
+
+    /************************************
+     ******** Memory management *********
+     ***********************************/
+
+    /**
+     * Keeps the BDD alive through collections
+     * @return The BDD
+     */
+    public int ref(int bdd) {
+        if (bdd > TRUE)
+            refs[bdd]++;
+        return bdd;
+    }
+
+    /**
+     * Gives back a reference taken with ref
+     */
+    public void deref(int bdd) {
+        if (bdd > TRUE && refs[bdd] > 0)
+            refs[bdd]--;
+    }
+
+    /**
+     * Frees every node that is not reachable from a referenced node
+     */
+    public void collect() {
+        collect(TRUE, FALSE);
+    }
+
+    /**
+     * Returns the number of nodes in use, not counting the terminals
+     */
+    public int getNodeNum() {
+        return capacity - freeCount - 2;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getVarNum() {
+        return varNum;
+    }
+
+    public int getGCCount() {
+        return gcCount;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /************************************
+     ******** Internal functions ********
+     ***********************************/
+
+    /**
+     * Applies the binary operation recursively, splitting on the topmost variable of the operands
+     */
+    private int apply(int op, int a, int b) {
+        switch (op) {
+            case OP_AND:
+                if (a == FALSE || b == FALSE) return FALSE;
+                if (a == TRUE || a == b) return b;
+                if (b == TRUE) return a;
+                break;
+            case OP_OR:
+                if (a == TRUE || b == TRUE) return TRUE;
+                if (a == FALSE || a == b) return b;
+                if (b == FALSE) return a;
+                break;
+            default:
+                if (a == FALSE || b == TRUE || a == b) return TRUE;
+                if (a == TRUE) return b;
+                break;
+        }
+
+        int slot = cacheSlot(op, a, b);
+        if (cache[slot] == op && cache[slot + 1] == a && cache[slot + 2] == b) {
+            cacheHits++;
+            return cache[slot + 3];
+        }
+        cacheMisses++;
+
+        int levelA = level[a];
+        int levelB = level[b];
+        int top = Math.min(levelA, levelB);
+        int lowResult = apply(op, levelA == top ? low[a] : a, levelB == top ? low[b] : b);
+        int highResult = apply(op, levelA == top ? high[a] : a, levelB == top ? high[b] : b);
+        int result = makeNode(top, lowResult, highResult);
+
+        // The cache grows with the node table, so the slot may have moved
+        slot = cacheSlot(op, a, b);
+        cache[slot] = op;
+        cache[slot + 1] = a;
+        cache[slot + 2] = b;
+        cache[slot + 3] = result;
+        return result;
+    }
+
+    /**
+     * Restricts the BDD with the literal, which is the variable for true and its complement for false
+     */
+    private int restrictRec(int bdd, int literal) {
+        int var = literal < 0 ? ~literal : literal;
+        if (level[bdd] > var)
+            return bdd;
+        if (level[bdd] == var)
+            return literal < 0 ? low[bdd] : high[bdd];
+
+        int slot = cacheSlot(OP_RESTRICT, bdd, literal);
+        if (cache[slot] == OP_RESTRICT && cache[slot + 1] == bdd && cache[slot + 2] == literal) {
+            cacheHits++;
+            return cache[slot + 3];
+        }
+        cacheMisses++;
+
+        int lowResult = restrictRec(low[bdd], literal);
+        int highResult = restrictRec(high[bdd], literal);
+        int result = makeNode(level[bdd], lowResult, highResult);
+
+        slot = cacheSlot(OP_RESTRICT, bdd, literal);
+        cache[slot] = OP_RESTRICT;
+        cache[slot + 1] = bdd;
+        cache[slot + 2] = literal;
+        cache[slot + 3] = result;
+        return result;
+    }
+
+    private double satFraction(int bdd, double[] fractions) {
+        if (bdd <= TRUE)
+            return bdd;
+        if (fractions[bdd] < 0)
+            fractions[bdd] = (satFraction(low[bdd], fractions) + satFraction(high[bdd], fractions)) / 2;
+
+        return fractions[bdd];
+    }
+
+    /**
+     * Finds or creates the node. Nodes with equal children are skipped, so the BDD stays reduced
+     */
+    private int makeNode(int var, int lowChild, int highChild) {
+        if (lowChild == highChild)
+            return lowChild;
+
+        int slot = uniqueSlot(var, lowChild, highChild);
+        for (int node = unique[slot]; node != 0; node = unique[slot]) {
+            if (level[node] == var && low[node] == lowChild && high[node] == highChild)
+                return node;
+            slot = (slot + 1) & uniqueMask;
+        }
+
+        if (freeCount == 0) {
+            // Collecting here could free the unreferenced results of the running operation, so only grow
+            allocate(capacity * 2);
+            slot = uniqueSlot(var, lowChild, highChild);
+            while (unique[slot] != 0)
+                slot = (slot + 1) & uniqueMask;
+        }
+
+        int node = freeList;
+        freeList = low[node];
+        freeCount--;
+
+        level[node] = var;
+        low[node] = lowChild;
+        high[node] = highChild;
+        refs[node] = 0;
+        unique[slot] = node;
+        return node;
+    }
+
+    /**
+     * Makes room in the node table before an operation, keeping the operands alive
+     */
+    private void prepare(int a, int b) {
+        if (freeCount * 100L >= capacity * (long) MIN_FREE_PERCENT)
+            return;
+
+        collect(a, b);
+        if (freeCount * 100L < capacity * (long) MIN_RECLAIMED_PERCENT)
+            allocate(capacity * 2);
+    }
+
+    /**
+     * Marks every node reachable from a referenced node or the extra roots, and frees the rest
+     */
+    private void collect(int rootA, int rootB) {
+        for (int node = 2; node < capacity; node++)
+            if (level[node] != FREE && refs[node] > 0)
+                mark(node);
+        mark(rootA);
+        mark(rootB);
+
+        freeList = 0;
+        freeCount = 0;
+        for (int node = capacity - 1; node > TRUE; node--) {
+            if (level[node] != FREE && (level[node] & MARK) != 0) {
+                level[node] &= ~MARK;
+            } else {
+                level[node] = FREE;
+                low[node] = freeList;
+                freeList = node;
+                freeCount++;
+            }
+        }
+
+        rehash();
+        Arrays.fill(cache, FREE);
+        gcCount++;
+    }
+
+    /**
+     * Marks the nodes reachable from the BDD
+     * @return The number of nodes that were not marked before
+     */
+    private int mark(int bdd) {
+        if (bdd <= TRUE || (level[bdd] & MARK) != 0)
+            return 0;
+
+        level[bdd] |= MARK;
+        return 1 + mark(low[bdd]) + mark(high[bdd]);
+    }
+
+    private void unmark(int bdd) {
+        if (bdd <= TRUE || (level[bdd] & MARK) == 0)
+            return;
+
+        level[bdd] &= ~MARK;
+        unmark(low[bdd]);
+        unmark(high[bdd]);
+    }
+
+    /**
+     * Creates or grows the node table. New nodes are put on the free list
+     */
+    private void allocate(int newCapacity) {
+        int oldCapacity = capacity;
+        if (oldCapacity == 0) {
+            level = new int[newCapacity];
+            low = new int[newCapacity];
+            high = new int[newCapacity];
+            refs = new int[newCapacity];
+            level[FALSE] = varNum;
+            level[TRUE] = varNum;
+            low[TRUE] = TRUE;
+            high[TRUE] = TRUE;
+            oldCapacity = 2;
+        } else {
+            level = Arrays.copyOf(level, newCapacity);
+            low = Arrays.copyOf(low, newCapacity);
+            high = Arrays.copyOf(high, newCapacity);
+            refs = Arrays.copyOf(refs, newCapacity);
+        }
+
+        for (int node = newCapacity - 1; node >= oldCapacity; node--) {
+            level[node] = FREE;
+            low[node] = freeList;
+            freeList = node;
+            freeCount++;
+        }
+        capacity = newCapacity;
+
+        rehash();
+        if (cacheMask + 1 < capacity / CACHE_DIVISOR)
+            resizeCache(capacity / CACHE_DIVISOR);
+    }
+
+    /**
+     * Replaces the cache with an empty one of at least the number of entries, rounded up to a power of two
+     */
+    private void resizeCache(int entries) {
+        int cacheEntries = Integer.highestOneBit(Math.max(2, entries - 1)) << 1;
+        cache = new int[cacheEntries * 4];
+        cacheMask = cacheEntries - 1;
+        Arrays.fill(cache, FREE);
+    }
+
+    /**
+     * Builds the unique table again from the nodes in use, with at most half of the slots filled
+     */
+    private void rehash() {
+        int slots = Integer.highestOneBit(capacity - 1) << 2;
+        if (unique == null || unique.length != slots)
+            unique = new int[slots];
+        else
+            Arrays.fill(unique, 0);
+        uniqueMask = slots - 1;
+
+        for (int node = 2; node < capacity; node++) {
+            if (level[node] == FREE)
+                continue;
+
+            int slot = uniqueSlot(level[node], low[node], high[node]);
+            while (unique[slot] != 0)
+                slot = (slot + 1) & uniqueMask;
+            unique[slot] = node;
+        }
+    }
+
+    private int uniqueSlot(int var, int lowChild, int highChild) {
+        return hash(var, lowChild, highChild) & uniqueMask;
+    }
+
+    private int cacheSlot(int op, int a, int b) {
+        return (hash(op, a, b) & cacheMask) * 4;
+    }
+
+    private static int hash(int x, int y, int z) {
+        int h = x * 0x9E3779B1 + y * 0x85EBCA77 + z * 0xC2B2AE3D;
+        return h ^ (h >>> 15);
+    }
+}
@@ -0,0 +1,193 @@
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Logic for the n-queens problem on the CompactBDD package instead of JavaBDD.
+ * The BDD is built from the same row, column and diagonal constraints as StructuredBDDBuilder,
+ * and a position is decided by restricting the main BDD with and without a queen on it.
+ * The variable of a position is (size * row) + column.
+ */
+public class CompactBDDLogic implements IQueensLogic {
+
+    private final BDDSizing sizing;
+    private CompactBDD bdd;
+    private int mainBDD;
+    private int size;
+    private int[][] board;
+    private boolean boardDirty;
+    private int peakNodeCount;
+
+    public CompactBDDLogic() {
+        this(BDDSizing.fromSystemProperties());
+    }
+
+    /**
+     * @param sizing The sizes of the node table and cache
+     */
+    public CompactBDDLogic(BDDSizing sizing) {
+        this.sizing = sizing;
+    }
+
+    @Override
+    public void initializeBoard(int size) {
+        this.size = size;
+        board = new int[size][size];
+        boardDirty = true;
+
+        bdd = new CompactBDD(size * size, sizing.nodeTableSize(size), sizing.cacheSize(size));
+        peakNodeCount = 0;
+        mainBDD = build();
+    }
+
+    @Override
+    public int[][] getBoard() {
+        if (boardDirty) {
+            for (int column = 0; column < size; column++)
+                for (int row = 0; row < size; row++)
+                    if (board[column][row] == 0)
+                        board[column][row] = evaluatePosition(column, row);
+
+            boardDirty = false;
+        }
+        return board;
+    }
+
+    @Override
+    public void insertQueen(int column, int row) {
+        if (board[column][row] != 0)
+            return;
+
+        int restricted = bdd.ref(bdd.restrict(mainBDD, (size * row) + column, true));
+        bdd.deref(mainBDD);
+        mainBDD = restricted;
+        board[column][row] = 1;
+        boardDirty = true;
+    }
+
+    /**
+     * Returns the number of nodes in use in the BDD package
+     */
+    public int getNodeCount() {
+        return bdd.getNodeNum();
+    }
+
+    /**
+     * Returns the highest number of nodes in use while the BDD was built
+     */
+    public int getPeakNodeCount() {
+        return peakNodeCount;
+    }
+
+    /**
+     * Makes the next getBoard evaluate the open positions again
+     */
+    void markBoardDirty() {
+        boardDirty = true;
+    }
+
+    /**
+     * Returns the BDD package of the board
+     */
+    public CompactBDD getBDD() {
+        return bdd;
+    }
+
+    /**
+     * Evaluates the position to see if there can be placed a queen or not
+     * @return 1 if the position needs to have a queen placed. -1 if a queen cannot be placed at that position. 0 if cannot be decided.
+     */
+    private int evaluatePosition(int column, int row) {
+        int var = (size * row) + column;
+
+        if (bdd.isZero(bdd.restrict(mainBDD, var, true)))
+            return -1;
+        if (bdd.isZero(bdd.restrict(mainBDD, var, false)))
+            return 1;
+        return 0;
+    }
+
+    /************************************
+     ******** Construction **************
+     ***********************************/
+
+    /**
+     * Builds the BDD of every solution, conjoining the smallest constraints first
+     * @return The referenced BDD
+     */
+    private int build() {
+        // Every entry is the node count and the BDD of a constraint
+        var constraints = new PriorityQueue<int[]>(Comparator.comparingInt(constraint -> constraint[0]));
+
+        for (int i = 0; i < size; i++) {
+            int[] row = new int[size];
+            int[] column = new int[size];
+            for (int j = 0; j < size; j++) {
+                row[j] = (size * i) + j;
+                column[j] = (size * j) + i;
+            }
+            add(constraints, countUpToOne(row, true));
+            add(constraints, countUpToOne(column, true));
+        }
+
+        for (int offset = -(size - 2); offset <= size - 2; offset++) {
+            int length = size - Math.abs(offset);
+            int[] diagonal = new int[length];
+            int[] antiDiagonal = new int[length];
+            int firstColumn = Math.max(0, offset);
+            int firstRow = Math.max(0, -offset);
+
+            for (int i = 0; i < length; i++) {
+                diagonal[i] = (size * (firstRow + i)) + firstColumn + i;
+                antiDiagonal[i] = (size * (firstRow + i)) + size - 1 - (firstColumn + i);
+            }
+            add(constraints, countUpToOne(diagonal, false));
+            add(constraints, countUpToOne(antiDiagonal, false));
+        }
+
+        while (constraints.size() > 1) {
+            int first = constraints.poll()[1];
+            int second = constraints.poll()[1];
+            int conjoined = bdd.ref(bdd.and(first, second));
+            bdd.deref(first);
+            bdd.deref(second);
+            add(constraints, conjoined);
+            peakNodeCount = Math.max(peakNodeCount, bdd.getNodeNum());
+        }
+
+        return constraints.isEmpty() ? CompactBDD.TRUE : constraints.poll()[1];
+    }
+
+    /**
+     * Builds the constraint that at most one, or exactly one, of the variables is true.
+     * The variables are handled from the bottom of the order, so every step only adds a node on top
+     * @param exactlyOne Whether one of the variables has to be true
+     * @return The referenced BDD
+     */
+    private int countUpToOne(int[] varIds, boolean exactlyOne) {
+        int none = CompactBDD.TRUE;
+        int one = CompactBDD.FALSE;
+
+        for (int i = varIds.length - 1; i >= 0; i--) {
+            int var = varIds[i];
+            int queen = bdd.ref(bdd.and(bdd.ithVar(var), none));
+            int nextOne = bdd.ref(bdd.or(queen, bdd.and(bdd.nithVar(var), one)));
+            int nextNone = bdd.ref(bdd.and(bdd.nithVar(var), none));
+
+            bdd.deref(queen);
+            bdd.deref(one);
+            bdd.deref(none);
+            one = nextOne;
+            none = nextNone;
+        }
+
+        int result = exactlyOne ? one : bdd.ref(bdd.or(none, one));
+        if (!exactlyOne)
+            bdd.deref(one);
+        bdd.deref(none);
+        return result;
+    }
+
+    private void add(PriorityQueue<int[]> constraints, int constraint) {
+        constraints.add(new int[] { bdd.nodeCount(constraint), constraint });
+    }
+}
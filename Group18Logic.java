@@ -1,50 +1,609 @@
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import net.sf.javabdd.*;
 
-public class Group18Logic implements IQueensLogic {
+public class Group18Logic implements IUndoableQueensLogic, IProgressiveQueensLogic, IBatchQueensLogic, AutoCloseable {
 
     private int[][] board;
+    private boolean boardDirty;
     private BDD mainBDD;
-    private BDD TRUE;
-    private BDD FALSE;
+    private int[] placedVars = new int[0];
 
+    private final BDDFactoryConfig factoryConfig;
     private BDDFactory factory;
+    private SupportPropagator propagator;
+    private EvaluationStrategy evaluationStrategy = EvaluationStrategy.SUPPORT_ANALYSIS;
+    private ConstructionStrategy constructionStrategy = ConstructionStrategy.STRUCTURED;
+    private VariableOrdering variableOrdering = VariableOrdering.rowMajor();
+    private BDDFactory.ReorderMethod reorderMethod = BDDFactory.REORDER_NONE;
+    private int[] variables;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private ParallelEvaluator parallelEvaluator;
+    private SpeculativeEvaluator speculator;
+    private boolean speculating;
+    private boolean symmetryReduction = true;
+    private LogicMetrics metrics = LogicMetrics.shared();
+    private final BDDScope.References references = new BDDScope.References();
+    private CellListener cellListener;
+    private int peakNodeCount;
     private int size;
 
+    private Path snapshotDirectory = System.getProperty("queens.bdd.snapshotDir") != null
+                                     ? Paths.get(System.getProperty("queens.bdd.snapshotDir")) : null;
+    private BaseBDD base;
+    private final ArrayDeque<HistoryEntry> undoHistory = new ArrayDeque<>();
+    private final ArrayDeque<HistoryEntry> redoHistory = new ArrayDeque<>();
+    private int historyLimit = 256;
+    private int baseCacheCapacity = 2;
+    private final LinkedHashMap<Integer, BaseBDD> baseBDDs = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, BaseBDD> eldest) {
+            if (size() <= getBaseCacheCapacity())
+                return false;
+
+            eldest.getValue().release(references);
+            return true;
+        }
+    };
+
+    public Group18Logic() {
+        this(BDDFactoryConfig.fromSystemProperties());
+    }
+
+    /**
+     * @param factoryConfig The settings of the BDD factory created for every board
+     */
+    public Group18Logic(BDDFactoryConfig factoryConfig) {
+        this.factoryConfig = factoryConfig;
+        setSpeculation(Integer.getInteger("queens.speculation.threads", 0),
+                       Long.getLong("queens.speculation.memoryMB", 64) << 20);
+    }
 
     @Override
     public void initializeBoard(int size) {
         this.size = size;
         board = new int[this.size][this.size];
-        mainBDD = initializeBDD(this.size);
+        stopSpeculation();
+        clearHistory(undoHistory);
+        clearHistory(redoHistory);
+        if (mainBDD != null)
+            references.release(mainBDD);
+        mainBDD = loadBaseBDD(this.size);
+        placedVars = new int[0];
+        boardDirty = true;
+    }
+
+    /**
+     * Removes all placed queens without building the BDD again
+     */
+    public void reset() {
+        stopSpeculation();
+        clearHistory(undoHistory);
+        clearHistory(redoHistory);
+        references.release(mainBDD);
+        mainBDD = references.owned(base.bdd.id());
+        placedVars = new int[0];
+        board = new int[size][size];
+        boardDirty = true;
+    }
+
+    /**
+     * Stops the threads of the speculation and the parallel evaluation and releases every BDD factory of the logic,
+     * those of the workers included. The logic can be initialized again afterwards, without speculation
+     */
+    @Override
+    public void close() {
+        setSpeculation(0, 0);
+        if (parallelEvaluator != null)
+            parallelEvaluator.shutdown();
+        parallelEvaluator = null;
+
+        clearHistory(undoHistory);
+        clearHistory(redoHistory);
+        if (mainBDD != null)
+            references.release(mainBDD);
+        mainBDD = null;
+
+        releaseBaseBDDs();
+        base = null;
+        factory = null;
+        propagator = null;
+    }
+
+    /**
+     * Frees every cached base BDD and releases its factory
+     */
+    private void releaseBaseBDDs() {
+        for (BaseBDD cached : baseBDDs.values())
+            cached.release(references);
+        baseBDDs.clear();
     }
 
     @Override
     public int[][] getBoard() {
         
-        updateBoard();
+        if (boardDirty) {
+            long start = metrics.boardUpdate.start();
+            updateBoard();
+            metrics.boardUpdate.record(start);
+            metrics.recordFactory(factory);
+            boardDirty = false;
+        }
+        if (speculator != null && !speculating) {
+            speculator.start(factory, base.bdd, placedVars, board, variables, metrics);
+            speculating = true;
+        }
         return board;
     }
 
+    @Override
+    public int[][] getBoard(CellListener listener) {
+        cellListener = listener;
+        try {
+            return getBoard();
+        } finally {
+            cellListener = null;
+        }
+    }
+
     @Override
     public void insertQueen(int column, int row) {
 
-        Position position = new Position(column, row);
-        
-        placeQueen(position);
+        placeQueen(column, row);
+    }
+
+    @Override
+    public boolean insertQueens(int[][] positions) {
+        long start = metrics.placeQueen.start();
+        int[] vars = new int[positions.length];
+        int count = 0;
+
+        BDD restricted;
+        try (BDDScope scope = new BDDScope(references)) {
+            // One cube of every new queen, so the main BDD is restricted once
+            BDD cube = scope.track(factory.one());
+            for (int[] position : positions) {
+                int var = translatePosition(position[0], position[1]);
+                if (board[position[0]][position[1]] == 1 || Arrays.stream(vars, 0, count).anyMatch(placed -> placed == var))
+                    continue;
+
+                cube.andWith(factory.ithVar(var));
+                vars[count++] = var;
+            }
+
+            if (count == 0)
+                return true;
+
+            restricted = scope.track(mainBDD.restrict(cube));
+            if (restricted.isZero()) {
+                // The queens attack each other or leave no solution, so the batch is rejected
+                return false;
+            }
+            scope.keep(restricted);
+        }
+
+        stopSpeculation();
+        rememberMove(new HistoryEntry(mainBDD, placedVars, Boards.copy(board), boardDirty));
+        mainBDD = restricted;
+        placedVars = Arrays.copyOf(placedVars, placedVars.length + count);
+        System.arraycopy(vars, 0, placedVars, placedVars.length - count, count);
+        for (int[] position : positions)
+            board[position[0]][position[1]] = 1;
+        boardDirty = true;
+
+        metrics.placeQueen.record(start);
+        metrics.recordMoves(count, mainBDD.nodeCount());
+        return true;
+    }
+
+    @Override
+    public boolean undo() {
+        if (undoHistory.isEmpty())
+            return false;
+
+        stopSpeculation();
+        redoHistory.push(new HistoryEntry(mainBDD, placedVars, board, boardDirty));
+        restore(undoHistory.pop());
+        return true;
+    }
+
+    @Override
+    public boolean redo() {
+        if (redoHistory.isEmpty())
+            return false;
+
+        stopSpeculation();
+        undoHistory.push(new HistoryEntry(mainBDD, placedVars, board, boardDirty));
+        restore(redoHistory.pop());
+        return true;
+    }
+
+    @Override
+    public boolean canUndo() {
+        return !undoHistory.isEmpty();
+    }
+
+    @Override
+    public boolean canRedo() {
+        return !redoHistory.isEmpty();
+    }
+
+    /**
+     * Returns the number of complete solutions that are still possible with the placed queens
+     */
+    public long countSolutions() {
+        // Every placed queen was restricted away, so the BDD no longer depends on its variable,
+        // and counting over all variables counts each solution twice per placed queen
+        return Math.round(mainBDD.satCount() / Math.pow(2, placedVars.length));
+    }
+
+    /**
+     * Returns the number of solutions that are still possible, counting solutions that are mirrorings or
+     * rotations of each other once. Only the symmetries that keep the queens on the board in place are used,
+     * so on the empty board this is the number of essentially different solutions.
+     * By Burnside's lemma it is the average over the symmetries of the number of solutions the symmetry keeps in place
+     */
+    public long countDistinctSolutions() {
+        List<BoardSymmetry> symmetries = BoardSymmetry.preservedBy(board);
+        boolean[] placed = new boolean[size * size];
+        for (int var : placedVars)
+            placed[var] = true;
+
+        double fixedSolutions = 0;
+        for (BoardSymmetry symmetry : symmetries) {
+            try (BDDScope scope = new BDDScope(references)) {
+                BDD fixed = scope.track(mainBDD.id());
+
+                // Every position must have the same value as its image. Placed queens are left out, since they
+                // are no longer in the BDD and their images are queens in every solution
+                for (int position = 0; position < size * size; position++) {
+                    int image = symmetry.apply(position, size);
+                    int var = variables[position];
+                    int imageVar = variables[image];
+
+                    if (image != position && !placed[var] && !placed[imageVar])
+                        fixed.andWith(factory.ithVar(var).biimpWith(factory.ithVar(imageVar)));
+                }
+
+                fixedSolutions += fixed.satCount() / Math.pow(2, placedVars.length);
+            }
+        }
+
+        return Math.round(fixedSolutions / symmetries.size());
+    }
+
+    /**
+     * Returns the complete solutions that are still possible with the placed queens.
+     * The solutions are found one at a time while iterating, and the iterator is not affected by later moves
+     * @return An iterator over solutions, each given as the column of the queen in each row
+     */
+    public Iterator<int[]> solutions() {
+        return new SolutionIterator(factory, mainBDD, size, variables, placedVars);
+    }
+
+    /**
+     * Sets how many moves can be taken back. The oldest moves are forgotten first
+     * @param historyLimit The number of moves to remember
+     */
+    public void setHistoryLimit(int historyLimit) {
+        this.historyLimit = historyLimit;
+        while (undoHistory.size() > historyLimit)
+            undoHistory.removeLast().free(references);
+    }
+
+    /**
+     * Forces the open positions to be evaluated again on the next call to getBoard
+     */
+    void markBoardDirty() {
+        boardDirty = true;
+    }
+
+    /**
+     * Sets how the positions of the board are evaluated
+     * @param evaluationStrategy The strategy to use on the next update of the board
+     */
+    public void setEvaluationStrategy(EvaluationStrategy evaluationStrategy) {
+        if (evaluationStrategy == EvaluationStrategy.PARALLEL_RESTRICT)
+            factoryConfig.requireSeveralFactories("the parallel evaluation");
+
+        this.evaluationStrategy = evaluationStrategy;
+    }
+
+    /**
+     * Sets the number of threads used by the parallel evaluation strategy
+     * @param parallelism The number of threads
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Turns on computing the boards of the possible next moves in the background after every board update.
+     * Defaults to the system properties queens.speculation.threads (0, off) and queens.speculation.memoryMB (64)
+     * @param threads The number of background threads, or 0 to turn speculation off
+     * @param memoryCapBytes The memory the speculated boards may take together
+     */
+    public void setSpeculation(int threads, long memoryCapBytes) {
+        if (threads > 0)
+            factoryConfig.requireSeveralFactories("the speculation");
+
+        stopSpeculation();
+        if (speculator != null)
+            speculator.shutdown();
+        speculator = threads > 0 ? new SpeculativeEvaluator(threads, memoryCapBytes, factoryConfig) : null;
+    }
+
+    /**
+     * Returns the background evaluator of the next moves, or null if speculation is off
+     */
+    public SpeculativeEvaluator getSpeculator() {
+        return speculator;
+    }
+
+    /**
+     * Sets the metrics the logic records its timings and BDD statistics in. Defaults to LogicMetrics.shared()
+     */
+    public void setMetrics(LogicMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public LogicMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets if the restricting strategies only evaluate one position per orbit of the symmetries
+     * that keep the queens in place, and copy the value to the rest of the orbit. Defaults to true
+     */
+    public void setSymmetryReduction(boolean symmetryReduction) {
+        this.symmetryReduction = symmetryReduction;
+    }
+
+    /**
+     * Sets the directory where built BDDs are saved and loaded from, so later runs can skip the construction.
+     * Defaults to the system property queens.bdd.snapshotDir
+     * @param snapshotDirectory The directory, or null to always build the BDD
+     */
+    public void setSnapshotDirectory(Path snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    /**
+     * Sets how many base BDDs, one per board size, are kept for new games.
+     * A backend with a single instance keeps one, since every base BDD lives in a factory of its own
+     * @param baseCacheCapacity The number of base BDDs to keep. At least 1
+     */
+    public void setBaseCacheCapacity(int baseCacheCapacity) {
+        if (baseCacheCapacity < 1)
+            throw new IllegalArgumentException("The cache must hold at least the base BDD of the current board");
+
+        this.baseCacheCapacity = baseCacheCapacity;
+    }
+
+    public int getBaseCacheCapacity() {
+        return factoryConfig.getBackend().isSingleInstance() ? 1 : baseCacheCapacity;
+    }
+
+    /**
+     * Sets how the main BDD is built
+     * @param constructionStrategy The strategy to use on the next initialization of the board
+     */
+    public void setConstructionStrategy(ConstructionStrategy constructionStrategy) {
+        this.constructionStrategy = constructionStrategy;
+    }
+
+    /**
+     * Sets which variable represents each position
+     * @param variableOrdering The ordering to use on the next initialization of the board
+     */
+    public void setVariableOrdering(VariableOrdering variableOrdering) {
+        this.variableOrdering = variableOrdering;
+    }
+
+    /**
+     * Sets the dynamic reordering used while the main BDD is built
+     * @param reorderMethod The reorder method, or REORDER_NONE to keep the initial order
+     */
+    public void setReorderMethod(BDDFactory.ReorderMethod reorderMethod) {
+        this.reorderMethod = reorderMethod;
+    }
+
+    /**
+     * Returns the number of nodes in the main BDD
+     */
+    public int getNodeCount() {
+        return mainBDD.nodeCount();
+    }
+
+    /**
+     * Returns the highest number of nodes in use in the factory while the main BDD was built
+     */
+    public int getPeakNodeCount() {
+        return peakNodeCount;
+    }
+
+    /**
+     * Returns the number of BDD handles this logic has counted and not freed yet
+     */
+    public long getLiveReferences() {
+        return references.getLiveReferences();
+    }
+
+    /**
+     * Returns the garbage collection statistics of the current BDD factory
+     */
+    public BDDFactory.GCStats getGCStats() {
+        return factory.getGCStats();
+    }
+
+    /**
+     * Returns the cache statistics of the current BDD factory.
+     * Note that JFactory only collects them when it is compiled with CACHESTATS enabled
+     */
+    public BDDFactory.CacheStats getCacheStats() {
+        return factory.getCacheStats();
     }
 
     /**
      * Updates the board with placements of queens 
-     * and positions where a queen is not allowed to be placed
+     * and positions where a queen is not allowed to be placed.
+     * Only open positions are evaluated, since a decided position never changes after more queens are placed
      */
     private void updateBoard() {
+        if (evaluationStrategy == EvaluationStrategy.SUPPORT_ANALYSIS) {
+            updateBoardFromSupport();
+            reportBoard();
+            return;
+        }
+
+        List<BoardSymmetry> symmetries = symmetryReduction ? BoardSymmetry.preservedBy(board) : List.of(BoardSymmetry.IDENTITY);
+        int[][] evaluated = symmetries.size() > 1 ? representativesOnly(symmetries) : board;
+
+        if (evaluationStrategy == EvaluationStrategy.PARALLEL_RESTRICT) {
+            updateBoardInParallel(evaluated);
+        } else {
+            for(int column = 0; column < evaluated.length; column++)
+                for (int row = 0; row < evaluated[column].length; row++) 
+                    if (evaluated[column][row] == 0) {
+                        evaluated[column][row] = evaluatePosition(column, row);
+                        reportOrbit(column, row, evaluated[column][row], symmetries);
+                    }
+        }
+
+        if (evaluated != board)
+            copyFromRepresentatives(evaluated, symmetries);
+        if (evaluationStrategy == EvaluationStrategy.PARALLEL_RESTRICT)
+            reportBoard();
+    }
+
+    /**
+     * Reports the value of the position and its images to the cell listener, if there is one
+     */
+    private void reportOrbit(int column, int row, int value, List<BoardSymmetry> symmetries) {
+        if (cellListener == null || value == 0)
+            return;
+
+        for (BoardSymmetry symmetry : symmetries) {
+            int image = symmetry.apply((size * row) + column, size);
+            cellListener.cellDecided(image % size, image / size, value);
+        }
+    }
+
+    /**
+     * Reports every decided position of the board to the cell listener, if there is one
+     */
+    private void reportBoard() {
+        if (cellListener == null)
+            return;
+
+        for (int column = 0; column < size; column++)
+            for (int row = 0; row < size; row++)
+                if (board[column][row] != 0)
+                    cellListener.cellDecided(column, row, board[column][row]);
+    }
+
+    /**
+     * Returns a copy of the board where only the open positions that represent their orbit are left open.
+     * The other open positions are set to 2, so the evaluation skips them
+     * @param symmetries The symmetries that keep the queens in place
+     */
+    private int[][] representativesOnly(List<BoardSymmetry> symmetries) {
+        int[][] representatives = Boards.copy(board);
+
+        for (int column = 0; column < size; column++)
+            for (int row = 0; row < size; row++) {
+                int position = (size * row) + column;
+                if (board[column][row] == 0 && BoardSymmetry.representative(position, size, symmetries) != position)
+                    representatives[column][row] = 2;
+            }
+
+        return representatives;
+    }
+
+    /**
+     * Gives every open position of the board the value evaluated for the representative of its orbit
+     */
+    private void copyFromRepresentatives(int[][] evaluated, List<BoardSymmetry> symmetries) {
+        for (int column = 0; column < size; column++)
+            for (int row = 0; row < size; row++)
+                if (board[column][row] == 0) {
+                    int representative = BoardSymmetry.representative((size * row) + column, size, symmetries);
+                    board[column][row] = evaluated[representative % size][representative / size];
+                }
+    }
+
+    /**
+     * Updates the board from a single traversal of the main BDD instead of restricting it for every position
+     */
+    private void updateBoardFromSupport() {
+        boolean[] canHaveQueen = new boolean[size*size];
+        boolean[] canBeEmpty = new boolean[size*size];
+        propagator.propagate(mainBDD, canHaveQueen, canBeEmpty);
+
         for(int column = 0; column < board.length; column++)
             for (int row = 0; row < board[column].length; row++) 
-                if (board[column][row] == 0)
-                    board[column][row] = evaluatePosition(column, row);
+                if (board[column][row] == 0) {
+                    int var = translatePosition(column, row);
+
+                    if (!canHaveQueen[var])
+                        board[column][row] = -1;
+                    else if (!canBeEmpty[var])
+                        board[column][row] = 1;
+                }
+    }
+
+    /**
+     * Updates the board by restricting copies of the BDD without queens on several threads
+     */
+    private void updateBoardInParallel(int[][] evaluated) {
+        if (parallelEvaluator == null || parallelEvaluator.getParallelism() != parallelism) {
+            if (parallelEvaluator != null)
+                parallelEvaluator.shutdown();
+            parallelEvaluator = new ParallelEvaluator(parallelism, factoryConfig);
+        }
+
+        parallelEvaluator.evaluate(factory, base.bdd, placedVars, evaluated, variables);
+    }
+
+    /**
+     * Returns a copy of the BDD without placed queens for the board size.
+     * The BDD is taken from the cache when it was built before with the same variable ordering,
+     * construction strategy and reorder method
+     * @param size The size of the board
+     * @return A binary decision diagram owned by the caller
+     */
+    private BDD loadBaseBDD(int size) {
+        base = baseBDDs.get(size);
+
+        if (base == null || !base.builtWith(variableOrdering.variables(size), constructionStrategy, reorderMethod)) {
+            if (base != null)
+                baseBDDs.remove(size).release(references);
+            if (factoryConfig.getBackend().isSingleInstance())
+                releaseBaseBDDs(); // The factory of the new BDD can only be created once the previous one is done
+
+            long start = metrics.construction.start();
+            BDD built = initializeBDD(size);
+            metrics.construction.record(start);
+            base = new BaseBDD(factory, references.owned(built), variables, propagator, peakNodeCount,
+                               constructionStrategy, reorderMethod);
+            baseBDDs.put(size, base);
+        }
+
+        factory = base.factory;
+        variables = base.variables;
+        propagator = base.propagator;
+        peakNodeCount = base.peakNodeCount;
+
+        return references.owned(base.bdd.id());
     }
 
     /**
@@ -54,29 +613,101 @@ public class Group18Logic implements IQueensLogic {
      */
     private BDD initializeBDD(int size) {
 
-        // Init variables
-        factory = JFactory.init(2000000, 200000);
-        TRUE = factory.one();
-        FALSE = factory.zero();
+        // Init variables. The factory is released when its base BDD leaves the cache
+        factory = factoryConfig.createFactory(size);
+        metrics.watch(factory);
         factory.setVarNum(size*size);
-        BDD temp = TRUE;
-                
+        variables = variableOrdering.variables(size);
+        propagator = new SupportPropagator(factory);
+        peakNodeCount = 0;
+
+        BDD snapshot = loadSnapshot(size);
+        if (snapshot != null)
+            return snapshot;
+
+        // Only reorder while building, so placing queens has a predictable cost.
+        // Not every backend supports reordering, so it is left alone when no reordering is wanted
+        boolean reorder = reorderMethod != BDDFactory.REORDER_NONE;
+        if (reorder)
+            factory.autoReorder(reorderMethod);
+        BDD built = constructionStrategy == ConstructionStrategy.STRUCTURED ? buildFromConstraints(size) : buildFromCellRules(size);
+        if (reorder)
+            factory.autoReorder(BDDFactory.REORDER_NONE);
+
+        saveSnapshot(size, built);
+        return built;
+    }
+
+    /**
+     * Loads the BDD for the board from the snapshot directory
+     * @param size The size of the board
+     * @return The BDD, or null if there is no usable snapshot
+     */
+    private BDD loadSnapshot(int size) {
+        if (snapshotDirectory == null)
+            return null;
+
+        try {
+            return BDDSnapshot.load(BDDSnapshot.fileFor(snapshotDirectory, size), factory, size, variables);
+        } catch (IOException e) {
+            System.err.println("Could not load the BDD snapshot, building it instead: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves the BDD for the board to the snapshot directory
+     * @param size The size of the board
+     * @param bdd The BDD to save
+     */
+    private void saveSnapshot(int size, BDD bdd) {
+        if (snapshotDirectory == null)
+            return;
+
+        try {
+            Files.createDirectories(snapshotDirectory);
+            BDDSnapshot.save(BDDSnapshot.fileFor(snapshotDirectory, size), bdd, size, variables);
+        } catch (IOException e) {
+            System.err.println("Could not save the BDD snapshot: " + e);
+        }
+    }
+
+    /**
+     * Builds the BDD from row, column and diagonal constraints
+     * @param size The maximum number of cells in both x and y direction
+     * @return A binary decision diagram
+     */
+    private BDD buildFromConstraints(int size) {
+        var builder = new StructuredBDDBuilder(factory, size, this::translatePosition, references);
+        BDD structured = builder.build();
+        peakNodeCount = builder.getPeakNodeCount();
+        return structured;
+    }
+
+    /**
+     * Builds the BDD by conjoining the queen attacking rules of every position
+     * @param size The maximum number of cells in both x and y direction
+     * @return A binary decision diagram
+     */
+    private BDD buildFromCellRules(int size) {
+        BDD temp = factory.one();
+        AttackIndex attackIndex = AttackIndex.forSize(size);
         
         for (int column = 0; column < size; column++) {
 
             for (int row = 0; row < size; row++) {
 
-                Position currentPosition = new Position(column, row);
-                
                 // Create the queen attack rules
-                BDD current = createQueenAttackingRules(currentPosition);
+                BDD current = createQueenAttackingRules(attackIndex, (size * row) + column);
                 temp.andWith(current);
                 
                 // Create "one queen on each row"-rule
                 if(column==0) {
-                    BDD eachRow = createOneQueenOnRowRule(row);
+                    BDD eachRow = createOneQueenOnRowRule(attackIndex, row);
                     temp.andWith(eachRow);
                 }
+
+                peakNodeCount = Math.max(peakNodeCount, factory.getNodeNum());
             }
         }
 
@@ -90,20 +721,38 @@ public class Group18Logic implements IQueensLogic {
      * @return 1 if the position needs to have a queen placed. -1 if a queen cannot be placed at that position. 0 if cannot be decided.
      */
     private int evaluatePosition(int column, int row) {
-        BDD testPlaceQueenBDD = mainBDD.restrict(factory.ithVar(translatePosition(column, row))); // Placing a queen on the position
-        BDD testNotPlacingQueenBDD = mainBDD.restrict(factory.nithVar(translatePosition(column, row))); // Not placing a queen on the position
+        long start = metrics.restrict.start();
+        int value = evaluateVariable(factory, mainBDD, translatePosition(column, row), references);
+        metrics.restrict.record(start);
+        return value;
+    }
 
-        if (testPlaceQueenBDD.isZero()) {
+    /**
+     * Evaluates the variable to see if it can be true, false or both in the BDD.
+     * @param factory The factory of the BDD
+     * @param bdd The BDD to restrict. It is not changed
+     * @param var The variable id of the position
+     * @param references The counters of the handles created for the evaluation
+     * @return 1 if the position needs to have a queen placed. -1 if a queen cannot be placed at that position. 0 if cannot be decided.
+     */
+    static int evaluateVariable(BDDFactory factory, BDD bdd, int var, BDDScope.References references) {
+        try (BDDScope scope = new BDDScope(references)) {
+            // The restrictions consume the copies of the BDD and the variables, so only the results are tracked
+            BDD testPlaceQueenBDD = scope.track(bdd.id().restrictWith(factory.ithVar(var))); // Placing a queen on the position
+            BDD testNotPlacingQueenBDD = scope.track(bdd.id().restrictWith(factory.nithVar(var))); // Not placing a queen on the position
 
-            // It is not possible to place a queen on the position
-            return -1;
-        } else if(testNotPlacingQueenBDD.isZero()){
+            if (testPlaceQueenBDD.isZero()) {
 
-            // There has to be placed a queen on the position
-            return 1;
-        }
+                // It is not possible to place a queen on the position
+                return -1;
+            } else if(testNotPlacingQueenBDD.isZero()){
+
+                // There has to be placed a queen on the position
+                return 1;
+            }
 
-        return 0;
+            return 0;
+        }
     }
 
     /************************************
@@ -112,45 +761,33 @@ public class Group18Logic implements IQueensLogic {
 
     /**
      * Creates a rule that there has to be one queen on the row
+     * @param attackIndex The positions of the board
      * @param row Number of the row
      * @return Returns the Binary Decision Diagram that 
      */
-    private BDD createOneQueenOnRowRule(int row){
-        BDD eachRowRule = FALSE;
-        
-        eachRowRule = createRule(IntStream.range(0, size).map(i -> translatePosition(i, row)), 
-                                eachRowRule, 
-                                (acc, val) -> acc != null ? acc.or(factory.ithVar(val)) : factory.ithVar(val));
-        
+    private BDD createOneQueenOnRowRule(AttackIndex attackIndex, int row){
+        BDD eachRowRule = factory.zero();
+
+        for (int position : attackIndex.row(row))
+            eachRowRule.orWith(factory.ithVar(variables[position]));
+
         return eachRowRule;
     }
 
-    
-
     /**
      * Create the queen attacking rules for the specific position
-     * @param pos The position that the rule should be created for
+     * @param attackIndex The positions attacked from each position
+     * @param position The position that the rule should be created for, numbered (size * row) + column
      * @return A binary decision diagram 
      */
-    private BDD createQueenAttackingRules(Position pos) {        
-        BDD tempQueenAttackingRule = TRUE;
-
-        // Create rules for the row
-        tempQueenAttackingRule = createRule(getVariablesFromSameRow(pos.getColumn(), pos.getRow()), 
-                                            tempQueenAttackingRule, 
-                                            (acc, val) -> acc.and(factory.nithVar(val)));
-        // Create rules for the column
-        tempQueenAttackingRule = createRule(getVariablesFromSameColumn(pos.getColumn(), pos.getRow()), 
-                                            tempQueenAttackingRule, 
-                                            (acc, val) -> acc.and(factory.nithVar(val)));
-
-        // Create diagonal rules
-        tempQueenAttackingRule = createRule(getVariablesFromDiagonals(pos.getColumn(), pos.getRow()), 
-                                            tempQueenAttackingRule, 
-                                            (acc, val) -> acc.and(factory.nithVar(val)));
-        
-        
-        return factory.ithVar(translatePosition(pos)).impWith(tempQueenAttackingRule);
+    private BDD createQueenAttackingRules(AttackIndex attackIndex, int position) {
+        BDD tempQueenAttackingRule = factory.one();
+
+        // No queen in the same row, column or diagonals
+        for (int attacked : attackIndex.attacked(position))
+            tempQueenAttackingRule.andWith(factory.nithVar(variables[attacked]));
+
+        return factory.ithVar(variables[position]).impWith(tempQueenAttackingRule);
     }
 
     /**
@@ -158,144 +795,180 @@ public class Group18Logic implements IQueensLogic {
      * @param column number of the column
      * @param row number of the row
      */
-    private void placeQueen(Position pos) {
+    private void placeQueen(int column, int row) {
+
+        if (board[column][row] == 0){
+            long start = metrics.placeQueen.start();
+            int[][] speculated = null;
+            if (speculating) {
+                speculated = speculator.take(column, row, size);
+                metrics.recordSpeculation(speculated != null);
+            }
+            stopSpeculation();
+
+            BDD restricted;
+            try (BDDScope scope = new BDDScope(references)) {
+                BDD queen = scope.track(factory.ithVar(translatePosition(column, row)));
+                restricted = scope.keep(scope.track(mainBDD.restrict(queen)));
+            }
 
-        if (board[pos.getColumn()][pos.getRow()] == 0){
-            mainBDD.restrictWith(factory.ithVar(translatePosition(pos)));
-            board[pos.getColumn()][pos.getRow()] = 1;
+            // Keep the state before the move, so it can be taken back
+            rememberMove(new HistoryEntry(mainBDD, placedVars, Boards.copy(board), boardDirty));
+            mainBDD = restricted;
+            placedVars = Arrays.copyOf(placedVars, placedVars.length + 1);
+            placedVars[placedVars.length - 1] = translatePosition(column, row);
+            board[column][row] = 1;
+            boardDirty = true;
+            if (speculated != null) {
+                // The board after this move was computed in the background
+                board = speculated;
+                boardDirty = false;
+            }
+
+            metrics.placeQueen.record(start);
+            metrics.recordMove(mainBDD.nodeCount());
         }
     }
 
-    /******************************* 
-    ******** UTIL FUNCTIONS ********
-    *******************************/
-
     /**
-     * Translates the position to an interger representation
-     * @param column number of the column
-     * @param row number of the row
-     * @return Returns an integer value
+     * Cancels the speculation on the next moves, since the board it started from is no longer current
      */
-    private int translatePosition(Position pos) {
-
-        return translatePosition(pos.getColumn(), pos.getRow());
+    private void stopSpeculation() {
+        if (speculator != null)
+            speculator.cancel();
+        speculating = false;
     }
 
+    /************************************
+     ******** History Functions *********
+     ***********************************/
+
     /**
-     * Translates the position to an interger representation
-     * @param column number of the column
-     * @param row number of the row
-     * @return Returns an integer value
+     * Remembers the state before a move and forgets the moves that could be redone
+     * @param before The state before the move
      */
-    private int translatePosition(int column, int row) {
+    private void rememberMove(HistoryEntry before) {
+        clearHistory(redoHistory);
+        undoHistory.push(before);
 
-        return (size * row) + column;
+        if (undoHistory.size() > historyLimit)
+            undoHistory.removeLast().free(references);
     }
 
     /**
-     * Creates a rule for each of variable Ids in the int stream
-     * @param varIds A stream of variable ids
-     * @param acc The accumulated BDD
-     * @param accumulater The function to be applied on the BDD
-     * @return Returns the create rule as a BDD
+     * Makes the entry the current state. The entry's BDD and board are taken over without copying
+     * @param entry The state to go back to
      */
-    private BDD createRule(IntStream varIds, BDD acc, Accumulater<BDD, Integer> accumulater) {
-        
-        BDD tempBody = acc;
-        var ids = varIds.toArray();
-
-        for (int i : ids) {
-            //System.out.println(i);
-            tempBody = accumulater.apply(tempBody, i);
-        }
-
-        return tempBody;
+    private void restore(HistoryEntry entry) {
+        mainBDD = entry.bdd;
+        placedVars = entry.placedVars;
+        board = entry.board;
+        boardDirty = entry.boardDirty;
     }
 
     /**
-     * Gets the variable ids from the same row, except it self
-     * @param column Number of the current column
-     * @param row Number of the current row
-     * @return Returns an intstream with variable ids from the same row except it self
+     * Frees the BDDs of the history and empties it
      */
-    private IntStream getVariablesFromSameRow(int column, int row) {
-
-        return IntStream.range(0, size)
-                        .filter(i -> i != column)
-                        .map(i -> translatePosition(i, row));
-    
+    private void clearHistory(ArrayDeque<HistoryEntry> history) {
+        while (!history.isEmpty())
+            history.pop().free(references);
     }
 
+    /******************************* 
+    ******** UTIL FUNCTIONS ********
+    *******************************/
+
     /**
-     * Gets the variable ids from the same column except it self
-     * @param column Number of the current column
-     * @param row Number fo the current row
-     * @return Returns an int stream with variable ids from the same column except it self
+     * Translates the position to an interger representation
+     * @param column number of the column
+     * @param row number of the row
+     * @return Returns an integer value
      */
-    private IntStream getVariablesFromSameColumn(int column, int row) {
+    private int translatePosition(int column, int row) {
 
-        return IntStream.range(0, size)
-                        .filter(i -> i != row)
-                        .map(i -> translatePosition(column, i));
+        return variables[(size * row) + column];
     }
 
     /**
-     * Gets the diagonal variable ids, except it self, based on the postion
-     * @param column Number of the current column 
-     * @param row Number of the current row
-     * @return Returns an int stream with variable ids, except it self
+     * Defines how the board is derived from the main BDD
      */
-    private IntStream getVariablesFromDiagonals(int column, int row) {
-        int currentPos = translatePosition(column, row);
-
-        // Generate top
-        var leftTopCorner = IntStream.range(0, size).boxed().map(i -> new Position(column - i ,row - i));
-        var rightTopCorner = IntStream.range(0, size).boxed().map(i -> new Position(column + i ,row - i));
-
-        var top = Stream.concat(leftTopCorner, rightTopCorner);
-
-        // Generate bottom
-        var leftBottomCorner = IntStream.range(0, size).boxed().map(i -> new Position(column - i ,row + i));
-        var rightBottomCorner = IntStream.range(0, size).boxed().map(i -> new Position(column + i ,row + i));
-        
-        var bottom = Stream.concat(leftBottomCorner, rightBottomCorner);
-
-        // Concat bottom and top aaaaand remove varIds out of range
-        return Stream.concat(top, bottom)
-                                .filter(pos -> pos.getColumn() >= 0 && size > pos.getColumn() && pos.getRow() >= 0 && size > pos.getRow())
-                                .mapToInt(pos -> translatePosition(pos.getColumn(), pos.getRow()))
-                                .filter(i -> currentPos != i);
+    public enum EvaluationStrategy {
+        /** Restricts the main BDD twice for every open position */
+        RESTRICT,
+        /** Finds the domain of every position in one traversal of the main BDD */
+        SUPPORT_ANALYSIS,
+        /** Restricts copies of the main BDD for the open positions on several threads */
+        PARALLEL_RESTRICT
     }
 
     /**
-     * Defines a function that takes a value as an input and an accumulater. It then returns the new accumulated value
+     * Defines how the main BDD is built
      */
-    private interface Accumulater<T, U> {
-    
-        T apply(T acc, U val);
+    public enum ConstructionStrategy {
+        /** Conjoins the attacking rules of every position in row-major order */
+        CELL_RULES,
+        /** Conjoins row, column and diagonal constraints smallest first */
+        STRUCTURED
     }
 
     /**
-     * Represents a postion with x, y coordinates
+     * The main BDD and board at one point in the game
      */
-    private class Position {
-        private final int row;
-        private final int column;
+    private static class HistoryEntry {
+        private final BDD bdd;
+        private final int[] placedVars;
+        private final int[][] board;
+        private final boolean boardDirty;
+
+        public HistoryEntry(BDD bdd, int[] placedVars, int[][] board, boolean boardDirty) {
+            this.bdd = bdd;
+            this.placedVars = placedVars;
+            this.board = board;
+            this.boardDirty = boardDirty;
+        }
 
-        public Position(int column, int row) {
-            this.row = row;
-            this.column = column;
+        public void free(BDDScope.References references) {
+            references.release(bdd);
         }
+    }
 
-        public int getRow() {
-            return row;
+    /**
+     * A BDD without placed queens together with the factory it lives in
+     */
+    private static class BaseBDD {
+        private final BDDFactory factory;
+        private final BDD bdd;
+        private final int[] variables;
+        private final SupportPropagator propagator;
+        private final int peakNodeCount;
+        private final ConstructionStrategy constructionStrategy;
+        private final BDDFactory.ReorderMethod reorderMethod;
+
+        public BaseBDD(BDDFactory factory, BDD bdd, int[] variables, SupportPropagator propagator, int peakNodeCount,
+                       ConstructionStrategy constructionStrategy, BDDFactory.ReorderMethod reorderMethod) {
+            this.factory = factory;
+            this.bdd = bdd;
+            this.variables = variables;
+            this.propagator = propagator;
+            this.peakNodeCount = peakNodeCount;
+            this.constructionStrategy = constructionStrategy;
+            this.reorderMethod = reorderMethod;
         }
 
-        public int getColumn() {
-            return column;
+        /**
+         * Returns whether the BDD was built with the settings, so it can be used in place of building it again
+         */
+        public boolean builtWith(int[] variables, ConstructionStrategy constructionStrategy, BDDFactory.ReorderMethod reorderMethod) {
+            return Arrays.equals(this.variables, variables) && this.constructionStrategy == constructionStrategy
+                   && this.reorderMethod == reorderMethod;
+        }
+
+        /**
+         * Frees the BDD and releases the factory
+         */
+        public void release(BDDScope.References references) {
+            references.release(bdd);
+            factory.done();
         }
-        
     }
 }
-
-
@@ -0,0 +1,130 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Runs move scripts through an IQueensLogic without a GUI.
+ *
+ * Every input line is one script: the board size followed by the placements as column,row pairs,
+ * e.g. "8 0,0 4,1 7,2". Empty lines and lines starting with # are skipped.
+ * Every script gives one output line with the size, the time of initializeBoard, the time of each move
+ * (insertQueen followed by getBoard) in microseconds, and the resulting board row by row,
+ * with Q for a queen, x for a position where a queen cannot be placed and . for an open position:
+ * "8 1520 310,45,12 Q......./x..Q..../..."
+ * Scripts that cannot be parsed give a line starting with "error".
+ * Closing the runner closes the logic.
+ */
+public class HeadlessRunner implements AutoCloseable {
+
+    private final IQueensLogic logic;
+
+    /**
+     * @param logic The logic to run the scripts with. It is reused for every script
+     */
+    public HeadlessRunner(IQueensLogic logic) {
+        this.logic = logic;
+    }
+
+    /**
+     * Runs every script in the input and writes one line per script to the output
+     * @return The number of scripts run
+     */
+    public int run(BufferedReader in, PrintWriter out) throws IOException {
+        int scripts = 0;
+        int lineNumber = 0;
+        String line;
+
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            try {
+                out.println(runScript(line.split("\\s+")));
+                scripts++;
+            } catch (IllegalArgumentException e) {
+                out.println("error " + lineNumber + " " + e.getMessage());
+            }
+        }
+
+        out.flush();
+        return scripts;
+    }
+
+    /**
+     * Runs one script
+     * @param tokens The size followed by column,row pairs
+     * @return The output line of the script
+     */
+    private String runScript(String[] tokens) {
+        int size = parseInt(tokens[0]);
+        if (size <= 4)
+            throw new IllegalArgumentException("Board size should be greater than 4");
+
+        int[][] moves = new int[tokens.length - 1][];
+        for (int i = 1; i < tokens.length; i++) {
+            String[] position = tokens[i].split(",");
+            if (position.length != 2)
+                throw new IllegalArgumentException("Expected column,row but was " + tokens[i]);
+
+            int column = parseInt(position[0]);
+            int row = parseInt(position[1]);
+            if (column < 0 || column >= size || row < 0 || row >= size)
+                throw new IllegalArgumentException("Position outside the board: " + tokens[i]);
+
+            moves[i - 1] = new int[] { column, row };
+        }
+
+        StringBuilder result = new StringBuilder();
+        long start = System.nanoTime();
+        logic.initializeBoard(size);
+        logic.getBoard();
+        result.append(size).append(' ').append((System.nanoTime() - start) / 1000).append(' ');
+
+        for (int i = 0; i < moves.length; i++) {
+            start = System.nanoTime();
+            logic.insertQueen(moves[i][0], moves[i][1]);
+            logic.getBoard();
+            result.append(i == 0 ? "" : ",").append((System.nanoTime() - start) / 1000);
+        }
+        if (moves.length == 0)
+            result.append('-');
+
+        result.append(' ').append(formatBoard(logic.getBoard()));
+        return result.toString();
+    }
+
+    /**
+     * Releases the threads and BDD factories of the logic
+     */
+    @Override
+    public void close() {
+        Queens.closeLogic(logic);
+    }
+
+    /**
+     * Formats the board row by row, separated by /
+     */
+    public static String formatBoard(int[][] board) {
+        StringBuilder result = new StringBuilder();
+        for (int row = 0; row < board.length; row++) {
+            if (row > 0)
+                result.append('/');
+
+            for (int column = 0; column < board.length; column++) {
+                int value = board[column][row];
+                result.append(value == 1 ? 'Q' : value == -1 ? 'x' : '.');
+            }
+        }
+        return result.toString();
+    }
+
+    private int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Could not parse number: " + value);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Extension of the interactive configurator that can insert several queens as one move,
+ * e.g. when a saved game is restored or a scripted opening is played.
+ */
+public interface IBatchQueensLogic extends IQueensLogic {
+
+	/**
+	 * Inserts queens at all the positions and updates the rest of the board once afterwards.
+	 * The batch is checked as a whole: if the queens cannot all be part of a solution, none of them is inserted.
+	 * Positions that already have a queen are skipped.
+	 * @param positions The positions as pairs of column and row
+	 * @return true if the queens were inserted, false if the batch was rejected
+	 */
+	public boolean insertQueens(int[][] positions);
+}
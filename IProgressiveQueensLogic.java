@@ -0,0 +1,20 @@
+/**
+ * Extension of the interactive configurator that reports the positions of the board as soon as they are decided,
+ * so a user interface can show them before the whole board is done.
+ */
+public interface IProgressiveQueensLogic extends IQueensLogic {
+
+	/**
+	 * Returns the board like getBoard, and calls the listener for every position given a value of 1 or -1
+	 * while the board is updated. The listener is called on the thread calling this method.
+	 * Positions may be reported more than once, and positions that were decided before may not be reported.
+	 */
+	public int[][] getBoard(CellListener listener);
+
+	/**
+	 * Receives the positions of the board as they are decided
+	 */
+	public interface CellListener {
+		public void cellDecided(int column, int row, int value);
+	}
+}
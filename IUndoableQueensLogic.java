@@ -0,0 +1,28 @@
+
+/**
+ * Extension of the interactive configurator that can take back placed queens.
+ */
+public interface IUndoableQueensLogic extends IQueensLogic {
+
+	/**
+	 * Takes back the last inserted queen, so the board is as it was before the insertion.
+	 * @return true if a queen was taken back, false if there is nothing to undo
+	 */
+	public boolean undo();
+
+	/**
+	 * Inserts the last queen taken back by undo again. Inserting a new queen clears what can be redone.
+	 * @return true if a queen was inserted again, false if there is nothing to redo
+	 */
+	public boolean redo();
+
+	/**
+	 * Returns true if there is an inserted queen that can be taken back
+	 */
+	public boolean canUndo();
+
+	/**
+	 * Returns true if there is a queen taken back that can be inserted again
+	 */
+	public boolean canRedo();
+}
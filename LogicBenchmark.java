@@ -0,0 +1,704 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import net.sf.javabdd.*;
+
+/**
+ * Small benchmark comparing the strategies inside Group18Logic with each other.
+ * The JMH benchmarks in src/jmh are the ones of record for the hot paths shared by all the logics.
+ * Usage: java LogicBenchmark [evaluation|construction|ordering|parallel|snapshot|counting|rendering|propagation|speculation|batch|lifecycle|overhead] [minSize] [maxSize] [step]
+ */
+public class LogicBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 20;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        String mode = args.length >= 1 ? args[0] : "evaluation";
+        int minSize = args.length >= 2 ? Integer.parseInt(args[1]) : 6;
+        int maxSize = args.length >= 3 ? Integer.parseInt(args[2]) : 10;
+        int step = args.length >= 4 ? Integer.parseInt(args[3]) : 1;
+
+        for (int size = minSize; size <= maxSize; size += step) {
+            switch (mode) {
+                case "evaluation":
+                    compareEvaluationStrategies(size);
+                    break;
+                case "construction":
+                    compareConstructionStrategies(size);
+                    break;
+                case "ordering":
+                    compareVariableOrderings(size);
+                    break;
+                case "parallel":
+                    measureParallelSpeedup(size);
+                    break;
+                case "snapshot":
+                    compareSnapshotStartup(size);
+                    break;
+                case "counting":
+                    compareSolutionCounting(size);
+                    break;
+                case "lifecycle":
+                    compareBDDLifecycle(size);
+                    break;
+                case "backends":
+                    compareBackends(size);
+                    break;
+                case "engine":
+                    compareCompactEngine(size);
+                    break;
+                case "symmetry":
+                    compareSymmetryReduction(size);
+                    break;
+                case "rendering":
+                    measureRendering(size);
+                    break;
+                case "propagation":
+                    measurePropagationScaling(size);
+                    break;
+                case "speculation":
+                    compareSpeculation(size);
+                    break;
+                case "batch":
+                    compareBatchInsertion(size);
+                    break;
+                case "overhead":
+                    measureMetricsOverhead(size);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown benchmark: " + mode);
+            }
+        }
+    }
+
+    /**
+     * Compares the per position restrict loop with the single traversal support analysis
+     * @param size The size of the board
+     */
+    private static void compareEvaluationStrategies(int size) {
+        Group18Logic restrict = new Group18Logic();
+        restrict.setEvaluationStrategy(Group18Logic.EvaluationStrategy.RESTRICT);
+        restrict.initializeBoard(size);
+        restrict.insertQueen(0, 1);
+
+        Group18Logic support = new Group18Logic();
+        support.setEvaluationStrategy(Group18Logic.EvaluationStrategy.SUPPORT_ANALYSIS);
+        support.initializeBoard(size);
+        support.insertQueen(0, 1);
+
+        double restrictMicros = averageMicros(() -> evaluate(restrict));
+        double supportMicros = averageMicros(() -> evaluate(support));
+
+        if (!Arrays.deepEquals(restrict.getBoard(), support.getBoard()))
+            throw new IllegalStateException("The evaluation strategies disagree on a " + size + "x" + size + " board");
+        restrict.close();
+        support.close();
+
+        System.out.printf("n=%2d  restrict: %10.1f us  support: %10.1f us  speedup: %6.1fx%n",
+                          size, restrictMicros, supportMicros, restrictMicros / supportMicros);
+    }
+
+    /**
+     * Compares the time and peak node count of building the main BDD with each construction strategy
+     * @param size The size of the board
+     */
+    private static void compareConstructionStrategies(int size) {
+        StringBuilder line = new StringBuilder(String.format("n=%2d", size));
+
+        for (Group18Logic.ConstructionStrategy strategy : Group18Logic.ConstructionStrategy.values()) {
+            Group18Logic logic = new Group18Logic();
+            logic.setConstructionStrategy(strategy);
+
+            long startBytes = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            logic.initializeBoard(size);
+            double millis = (System.nanoTime() - start) / 1e6;
+            long kilobytes = (THREADS.getCurrentThreadAllocatedBytes() - startBytes) / 1024;
+
+            line.append(String.format("  %s: %9.1f ms %9d peak nodes %4d gcs %9d KB allocated",
+                                      strategy, millis, logic.getPeakNodeCount(), logic.getGCStats().num, kilobytes));
+            logic.close();
+        }
+
+        System.out.println(line);
+    }
+
+    /**
+     * Compares the size and build time of the main BDD with each variable ordering
+     * @param size The size of the board
+     */
+    private static void compareVariableOrderings(int size) {
+        var orderings = new LinkedHashMap<String, VariableOrdering>();
+        orderings.put("row-major", VariableOrdering.rowMajor());
+        orderings.put("column-major", VariableOrdering.columnMajor());
+        orderings.put("diagonal", VariableOrdering.diagonalInterleaved());
+
+        for (var ordering : orderings.entrySet())
+            measureOrdering(size, ordering.getKey(), ordering.getValue(), BDDFactory.REORDER_NONE);
+
+        measureOrdering(size, "row-major", VariableOrdering.rowMajor(), BDDFactory.REORDER_SIFT);
+        measureOrdering(size, "row-major", VariableOrdering.rowMajor(), BDDFactory.REORDER_WIN2ITE);
+    }
+
+    /**
+     * Builds the main BDD with the ordering and prints its size and build time
+     */
+    private static void measureOrdering(int size, String name, VariableOrdering ordering, BDDFactory.ReorderMethod reorderMethod) {
+        Group18Logic logic = new Group18Logic();
+        logic.setVariableOrdering(ordering);
+        logic.setReorderMethod(reorderMethod);
+
+        long start = System.nanoTime();
+        logic.initializeBoard(size);
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        System.out.printf("n=%2d  %-12s reorder=%-8s %9d nodes %9.1f ms%n", size, name, reorderMethod, logic.getNodeCount(), millis);
+        logic.close();
+    }
+
+    /**
+     * Measures the parallel evaluation strategy from one thread up to the number of cores
+     * @param size The size of the board
+     */
+    private static void measureParallelSpeedup(int size) {
+        Group18Logic logic = new Group18Logic();
+        logic.setEvaluationStrategy(Group18Logic.EvaluationStrategy.PARALLEL_RESTRICT);
+        logic.initializeBoard(size);
+        logic.insertQueen(0, 1);
+
+        double singleThreadMicros = 0;
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads++) {
+            logic.setParallelism(threads);
+            double micros = averageMicros(() -> evaluate(logic));
+            if (threads == 1)
+                singleThreadMicros = micros;
+
+            System.out.printf("n=%2d  threads=%2d  %10.1f us  speedup: %5.2fx%n", size, threads, micros, singleThreadMicros / micros);
+        }
+        logic.close();
+    }
+
+    /**
+     * Compares the startup time of building the main BDD with loading it from a snapshot file
+     * @param size The size of the board
+     */
+    private static void compareSnapshotStartup(int size) throws IOException {
+        Path directory = Files.createTempDirectory("queens-snapshots");
+
+        Group18Logic building = new Group18Logic();
+        building.setSnapshotDirectory(directory);
+        long start = System.nanoTime();
+        building.initializeBoard(size);
+        double buildMillis = (System.nanoTime() - start) / 1e6;
+
+        Group18Logic loading = new Group18Logic();
+        loading.setSnapshotDirectory(directory);
+        start = System.nanoTime();
+        loading.initializeBoard(size);
+        double loadMillis = (System.nanoTime() - start) / 1e6;
+
+        Path file = BDDSnapshot.fileFor(directory, size);
+        if (!Arrays.deepEquals(building.getBoard(), loading.getBoard()))
+            throw new IllegalStateException("The loaded BDD differs from the built BDD on a " + size + "x" + size + " board");
+        building.close();
+        loading.close();
+
+        System.out.printf("n=%2d  build+save: %9.1f ms  load: %9.1f ms  file: %9d bytes%n", size, buildMillis, loadMillis, Files.size(file));
+
+        Files.delete(file);
+        Files.delete(directory);
+    }
+
+    /**
+     * Compares counting and enumerating the solutions in the BDD with a backtracking count
+     * @param size The size of the board
+     */
+    private static void compareSolutionCounting(int size) {
+        Group18Logic logic = new Group18Logic();
+        logic.initializeBoard(size);
+
+        long start = System.nanoTime();
+        long counted = logic.countSolutions();
+        double countMillis = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        long enumerated = 0;
+        for (var solutions = logic.solutions(); solutions.hasNext(); solutions.next())
+            enumerated++;
+        double enumerateMillis = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        long backtracked = countByBacktracking(size, 0, 0, 0, 0);
+        double backtrackMillis = (System.nanoTime() - start) / 1e6;
+        logic.close();
+
+        if (counted != backtracked || enumerated != backtracked)
+            throw new IllegalStateException("Solution counts differ on a " + size + "x" + size + " board: "
+                                            + counted + " counted, " + enumerated + " enumerated, " + backtracked + " backtracked");
+
+        System.out.printf("n=%2d  %8d solutions  satCount: %9.3f ms  iterator: %9.1f ms  backtracking: %9.1f ms%n",
+                          size, counted, countMillis, enumerateMillis, backtrackMillis);
+    }
+
+    /**
+     * Compares the build time, evaluation latency and memory of the main BDD with each BDD backend
+     * that can be loaded on this machine. Backends that are missing are reported as n/a
+     * @param size The size of the board
+     */
+    private static void compareBackends(int size) {
+        BDDFactoryConfig config = BDDFactoryConfig.fromSystemProperties();
+        Set<BDDFactoryConfig.Backend> available = BDDFactoryConfig.Backend.available();
+        int[][] expected = null;
+
+        for (BDDFactoryConfig.Backend backend : BDDFactoryConfig.Backend.values()) {
+            if (!available.contains(backend)) {
+                System.out.printf("n=%2d  %-6s n/a%n", size, backend.getName());
+                continue;
+            }
+
+            System.gc();
+            long heapBefore = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            Group18Logic logic = new Group18Logic(config.withBackend(backend));
+            long start = System.nanoTime();
+            logic.initializeBoard(size);
+            double buildMillis = (System.nanoTime() - start) / 1e6;
+            long heapKilobytes = (ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() - heapBefore) / 1024;
+
+            logic.insertQueen(0, 1);
+            double evaluateMicros = averageMicros(() -> evaluate(logic));
+
+            if (expected == null)
+                expected = Boards.copy(logic.getBoard());
+            else if (!Arrays.deepEquals(expected, logic.getBoard()))
+                throw new IllegalStateException("The " + backend.getName() + " backend disagrees on a " + size + "x" + size + " board");
+
+            System.out.printf("n=%2d  %-6s build: %9.1f ms  evaluate: %10.1f us  peak nodes: %9d  heap: %9d KB%n",
+                              size, backend.getName(), buildMillis, evaluateMicros, logic.getPeakNodeCount(), heapKilobytes);
+
+            // A native backend allows one factory at a time, so the next backend starts without this one
+            logic.close();
+        }
+    }
+
+    /**
+     * Compares evaluating every position by restriction with evaluating one position per orbit of the
+     * symmetries, on the empty board and after a queen in the center of the board, or next to it on even boards
+     * @param size The size of the board
+     */
+    private static void compareSymmetryReduction(int size) {
+        Group18Logic logic = new Group18Logic();
+        logic.setEvaluationStrategy(Group18Logic.EvaluationStrategy.RESTRICT);
+        logic.initializeBoard(size);
+        StringBuilder line = new StringBuilder(String.format("n=%2d", size));
+
+        for (int queens = 0; queens <= 1; queens++) {
+            // Start from a fresh board every run, so every open position is evaluated
+            boolean withQueen = queens == 1;
+            Runnable play = () -> {
+                logic.reset();
+                if (withQueen)
+                    logic.insertQueen(size / 2, size / 2);
+                logic.getBoard();
+            };
+
+            logic.setSymmetryReduction(false);
+            double allMicros = averageMicros(play);
+            int[][] expected = Boards.copy(logic.getBoard());
+            logic.setSymmetryReduction(true);
+            double orbitMicros = averageMicros(play);
+
+            if (!Arrays.deepEquals(expected, logic.getBoard()))
+                throw new IllegalStateException("The symmetry reduction changes a " + size + "x" + size + " board");
+
+            line.append(String.format("  %d queens: all %10.1f us  orbits %10.1f us  speedup %4.1fx",
+                                      queens, allMicros, orbitMicros, allMicros / orbitMicros));
+        }
+
+        Group18Logic empty = new Group18Logic();
+        empty.initializeBoard(size);
+        long start = System.nanoTime();
+        long distinct = empty.countDistinctSolutions();
+        double countMillis = (System.nanoTime() - start) / 1e6;
+        line.append(String.format("  distinct solutions: %d of %d in %.1f ms", distinct, empty.countSolutions(), countMillis));
+        logic.close();
+        empty.close();
+
+        System.out.println(line);
+    }
+
+    /**
+     * Compares the CompactBDD package with JavaBDD on the same constraints. Both evaluate the board
+     * by restricting the main BDD for every position, and JavaBDD is also measured with the support analysis
+     * @param size The size of the board
+     */
+    private static void compareCompactEngine(int size) {
+        Group18Logic javaBDD = new Group18Logic();
+        javaBDD.setEvaluationStrategy(Group18Logic.EvaluationStrategy.RESTRICT);
+        long start = System.nanoTime();
+        javaBDD.initializeBoard(size);
+        double javaBuildMillis = (System.nanoTime() - start) / 1e6;
+        javaBDD.insertQueen(0, 1);
+        double javaRestrictMicros = averageMicros(() -> evaluate(javaBDD));
+        javaBDD.setEvaluationStrategy(Group18Logic.EvaluationStrategy.SUPPORT_ANALYSIS);
+        double javaSupportMicros = averageMicros(() -> evaluate(javaBDD));
+
+        CompactBDDLogic compact = new CompactBDDLogic();
+        start = System.nanoTime();
+        compact.initializeBoard(size);
+        double compactBuildMillis = (System.nanoTime() - start) / 1e6;
+        compact.insertQueen(0, 1);
+        double compactMicros = averageMicros(() -> {
+            compact.markBoardDirty();
+            compact.getBoard();
+        });
+
+        if (!Arrays.deepEquals(javaBDD.getBoard(), compact.getBoard()))
+            throw new IllegalStateException("CompactBDD disagrees with JavaBDD on a " + size + "x" + size + " board");
+        javaBDD.close();
+
+        CompactBDD engine = compact.getBDD();
+        double hitRatio = (double) engine.getCacheHits() / Math.max(1, engine.getCacheHits() + engine.getCacheMisses());
+        System.out.printf("n=%2d  JavaBDD build: %9.1f ms  restrict: %10.1f us  support: %10.1f us  peak nodes: %9d%n",
+                          size, javaBuildMillis, javaRestrictMicros, javaSupportMicros, javaBDD.getPeakNodeCount());
+        System.out.printf("      Compact build: %9.1f ms  restrict: %10.1f us  gcs: %4d  cache hits: %5.1f%%  peak nodes: %9d%n",
+                          compactBuildMillis, compactMicros, engine.getGCCount(), hitRatio * 100, compact.getPeakNodeCount());
+    }
+
+    /**
+     * Compares the node table garbage collections per move when the BDDs of the evaluation are left
+     * for the garbage collector, as the evaluation used to do, with freeing them right away.
+     * Also checks that a game with Group18Logic gives back every BDD handle it counts
+     * @param size The size of the board
+     */
+    private static void compareBDDLifecycle(int size) {
+        double leakingGCs = gcsPerMove(size, true);
+        double freeingGCs = gcsPerMove(size, false);
+
+        Group18Logic logic = new Group18Logic();
+        logic.setEvaluationStrategy(Group18Logic.EvaluationStrategy.RESTRICT);
+        logic.initializeBoard(size);
+        long liveAfterInitialize = logic.getLiveReferences();
+        int[] solution = Boards.firstSolution(size);
+        for (int row = 0; row < size; row++) {
+            logic.insertQueen(solution[row], row);
+            logic.getBoard();
+        }
+        logic.initializeBoard(size);
+        long liveAfterGame = logic.getLiveReferences();
+        logic.close();
+        long liveAfterClose = logic.getLiveReferences();
+
+        System.out.printf("n=%2d  gcs/move leaking: %7.2f  freeing: %7.2f  live references: %d after initializing, %d after a game, %d after closing%n",
+                          size, leakingGCs, freeingGCs, liveAfterInitialize, liveAfterGame, liveAfterClose);
+    }
+
+    /**
+     * Places the queens of the first solution on a new factory and evaluates every position after each move
+     * @param leak Whether the BDDs of the evaluation are left for the garbage collector instead of being freed
+     * @return The average number of node table garbage collections per move
+     */
+    private static double gcsPerMove(int size, boolean leak) {
+        BDDFactory factory = BDDFactoryConfig.fromSystemProperties().createFactory(size);
+        factory.setVarNum(size * size);
+        int[] variables = VariableOrdering.rowMajor().variables(size);
+        BDD bdd = new StructuredBDDBuilder(factory, size, (column, row) -> variables[(size * row) + column]).build();
+
+        var references = new BDDScope.References();
+        int[] solution = Boards.firstSolution(size);
+        int startGCs = factory.getGCStats().num;
+        for (int row = 0; row < size; row++) {
+            bdd.restrictWith(factory.ithVar(variables[(size * row) + solution[row]]));
+            for (int var : variables)
+                if (leak)
+                    evaluateLeaking(factory, bdd, var);
+                else
+                    Group18Logic.evaluateVariable(factory, bdd, var, references);
+        }
+        int gcs = factory.getGCStats().num - startGCs;
+
+        bdd.free();
+        factory.done();
+        return (double) gcs / size;
+    }
+
+    /**
+     * Evaluates the variable without freeing the BDDs it creates
+     */
+    private static int evaluateLeaking(BDDFactory factory, BDD bdd, int var) {
+        if (bdd.restrict(factory.ithVar(var)).isZero())
+            return -1;
+        if (bdd.restrict(factory.nithVar(var)).isZero())
+            return 1;
+        return 0;
+    }
+
+    /**
+     * Counts the solutions by placing a queen in each row with bitwise backtracking
+     */
+    private static long countByBacktracking(int size, int row, long columns, long leftDiagonals, long rightDiagonals) {
+        if (row == size)
+            return 1;
+
+        long count = 0;
+        long free = ~(columns | leftDiagonals | rightDiagonals) & ((1L << size) - 1);
+        while (free != 0) {
+            long bit = free & -free;
+            free ^= bit;
+            count += countByBacktracking(size, row + 1, columns | bit, (leftDiagonals | bit) >>> 1, (rightDiagonals | bit) << 1);
+        }
+        return count;
+    }
+
+    /**
+     * Measures the frame times of the GUI board offscreen: composing the cached images, a full frame and the
+     * repaint of a single position, at the tile size that fits a 1000 x 1000 window
+     * @param size The size of the board
+     */
+    private static void measureRendering(int size) throws IOException {
+        var renderer = new BoardRenderer(size);
+        renderer.setTileSize(renderer.fitTileSize(1000, 1000));
+        var boardSize = renderer.getBoardSize();
+        var frame = new java.awt.image.BufferedImage(boardSize.width, boardSize.height, java.awt.image.BufferedImage.TYPE_INT_RGB);
+        var g = frame.createGraphics();
+
+        int[][] board = new int[size][size];
+        int[] solution = Boards.firstSolution(size);
+        for (int column = 0; column < size; column++)
+            for (int row = 0; row < size; row++)
+                board[column][row] = solution[row] == column ? 1 : -1;
+
+        long start = System.nanoTime();
+        renderer.paint(g, board, null);
+        double composeMillis = (System.nanoTime() - start) / 1e6;
+
+        double fullMicros = averageMicros(() -> renderer.paint(g, board, null));
+        var cell = renderer.cellBounds(size / 2, size / 2);
+        double cellMicros = averageMicros(() -> renderer.paint(g, board, cell));
+        g.dispose();
+
+        System.out.printf("n=%2d  tile: %3d px  compose: %8.1f ms  full frame: %9.1f us  one position: %7.1f us%n",
+                size, renderer.getTileSize(), composeMillis, fullMicros, cellMicros);
+    }
+
+    /**
+     * Compares placing the first k queens of a solution one by one, getting the board after each of them as a
+     * restored game would, with placing them in one batch, for k = 1..size
+     * @param size The size of the board
+     */
+    private static void compareBatchInsertion(int size) {
+        Group18Logic logic = new Group18Logic();
+        logic.initializeBoard(size);
+        int[] solution = Boards.firstSolution(size);
+
+        for (int k = 1; k <= size; k++) {
+            int[][] positions = new int[k][];
+            for (int row = 0; row < k; row++)
+                positions[row] = new int[] { solution[row], row };
+
+            double singleMicros = averageMicros(() -> {
+                logic.reset();
+                for (int[] position : positions) {
+                    logic.insertQueen(position[0], position[1]);
+                    logic.getBoard();
+                }
+            });
+            int[][] expected = Boards.copy(logic.getBoard());
+
+            double batchMicros = averageMicros(() -> {
+                logic.reset();
+                if (!logic.insertQueens(positions))
+                    throw new IllegalStateException("A batch from a solution was rejected");
+                logic.getBoard();
+            });
+
+            if (!Arrays.deepEquals(expected, logic.getBoard()))
+                throw new IllegalStateException("The batch gives another board than single inserts for k = " + k);
+
+            System.out.printf("n=%2d  k=%2d  single inserts: %10.1f us  batch: %10.1f us  speedup: %5.1fx%n",
+                    size, k, singleMicros, batchMicros, singleMicros / batchMicros);
+        }
+
+        // Two queens on the same row can never be part of a solution, so nothing may change
+        logic.reset();
+        int[][] before = Boards.copy(logic.getBoard());
+        if (logic.insertQueens(new int[][] { { 0, 0 }, { 1, 0 } }) || !Arrays.deepEquals(before, logic.getBoard()))
+            throw new IllegalStateException("A batch of attacking queens was not rejected");
+        logic.close();
+    }
+
+    /**
+     * Compares a game with recorded metrics to a game with LogicMetrics.disabled(), to show what the metrics cost
+     * on the hot path. The restrict strategy is used, since it times every position it evaluates
+     * @param size The size of the board
+     */
+    private static void measureMetricsOverhead(int size) {
+        int[] solution = Boards.firstSolution(size);
+        Group18Logic[] logics = new Group18Logic[2];
+        for (int enabled = 0; enabled <= 1; enabled++) {
+            logics[enabled] = new Group18Logic();
+            logics[enabled].setEvaluationStrategy(Group18Logic.EvaluationStrategy.RESTRICT);
+            logics[enabled].setMetrics(enabled == 1 ? new LogicMetrics() : LogicMetrics.disabled());
+            logics[enabled].initializeBoard(size);
+        }
+
+        // The two games take turns and the fastest round of each counts, so warm up and noise hit both alike
+        double[] micros = { Double.MAX_VALUE, Double.MAX_VALUE };
+        for (int round = 0; round < 5; round++)
+            for (int enabled = 0; enabled <= 1; enabled++) {
+                Group18Logic logic = logics[enabled];
+                micros[enabled] = Math.min(micros[enabled], averageMicros(() -> {
+                    logic.reset();
+                    for (int row = 0; row < size; row++) {
+                        logic.insertQueen(solution[row], row);
+                        logic.getBoard();
+                    }
+                }));
+            }
+        for (Group18Logic logic : logics)
+            logic.close();
+
+        System.out.printf("n=%2d  game without metrics: %10.1f us  with metrics: %10.1f us  overhead: %6.2f%%%n",
+                          size, micros[0], micros[1], 100 * (micros[1] - micros[0]) / micros[0]);
+    }
+
+    /**
+     * Compares the latency of a move, from inserting the queen to having the board, with and without speculation.
+     * The player thinks for a while before every move and picks an open position at random, the same in both games
+     * @param size The size of the board
+     */
+    private static void compareSpeculation(int size) {
+        final long thinkMillis = 200;
+        final int games = 5;
+        StringBuilder line = new StringBuilder(String.format("n=%2d", size));
+
+        for (int threads = 0; threads <= 1; threads++) {
+            var metrics = new LogicMetrics();
+            var logic = new Group18Logic();
+            logic.setMetrics(metrics);
+            logic.setSpeculation(threads, 64 << 20);
+
+            double totalMillis = 0, hitMillis = 0;
+            int moves = 0;
+            for (int game = 0; game < games; game++) {
+                var random = new java.util.Random(game);
+                logic.initializeBoard(size);
+                int[][] board = logic.getBoard();
+
+                while (true) {
+                    var open = new java.util.ArrayList<int[]>();
+                    for (int column = 0; column < size; column++)
+                        for (int row = 0; row < size; row++)
+                            if (board[column][row] == 0)
+                                open.add(new int[] { column, row });
+                    if (open.isEmpty())
+                        break;
+
+                    sleep(thinkMillis);
+                    int[] move = open.get(random.nextInt(open.size()));
+                    long hits = metrics.getSpeculationHits();
+                    long start = System.nanoTime();
+                    logic.insertQueen(move[0], move[1]);
+                    board = logic.getBoard();
+                    double millis = (System.nanoTime() - start) / 1e6;
+                    totalMillis += millis;
+                    if (metrics.getSpeculationHits() > hits)
+                        hitMillis += millis;
+                    moves++;
+                }
+            }
+
+            if (threads == 0) {
+                line.append(String.format("  off: %8.2f ms/move", totalMillis / moves));
+            } else {
+                SpeculativeEvaluator speculator = logic.getSpeculator();
+                long hits = metrics.getSpeculationHits();
+                long misses = metrics.getSpeculationMisses();
+                line.append(String.format("  on: %8.2f ms/move (hit %7.2f ms, miss %7.2f ms)  hit ratio: %5.1f%%  boards computed: %7d  cancelled: %7d",
+                                          totalMillis / moves, hits == 0 ? 0 : hitMillis / hits,
+                                          misses == 0 ? 0 : (totalMillis - hitMillis) / misses, 100 * metrics.getSpeculationHitRatio(),
+                                          speculator.getComputedCount(), speculator.getCancelledCount()));
+            }
+            logic.close();
+        }
+
+        System.out.println(line);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Measures the latency of PropagationLogic on large boards: the first board, and the moves of a game
+     * where queens are placed on open positions at random, with the share of positions left undecided
+     * @param size The size of the board
+     */
+    private static void measurePropagationScaling(int size) {
+        final int moves = 5;
+        var logic = new PropagationLogic();
+        var random = new java.util.Random(size);
+
+        long start = System.nanoTime();
+        logic.initializeBoard(size);
+        logic.getBoard();
+        double firstMillis = (System.nanoTime() - start) / 1e6;
+        int firstUndecided = logic.getUndecidedCount();
+
+        double moveMillis = 0;
+        int played = 0;
+        for (; played < moves; played++) {
+            int[][] board = logic.getBoard();
+            int column, row, tries = 0;
+            do {
+                column = random.nextInt(size);
+                row = random.nextInt(size);
+            } while (board[column][row] != 0 && ++tries < size * size);
+            if (board[column][row] != 0)
+                break;
+
+            start = System.nanoTime();
+            logic.insertQueen(column, row);
+            logic.getBoard();
+            moveMillis += (System.nanoTime() - start) / 1e6;
+        }
+
+        double positions = (double) size * size;
+        System.out.printf("n=%3d  first board: %8.1f ms  undecided: %5.1f%%  per move: %8.1f ms  undecided after %d moves: %5.1f%%%n",
+                size, firstMillis, 100 * firstUndecided / positions, played == 0 ? 0 : moveMillis / played,
+                played, 100 * logic.getUndecidedCount() / positions);
+    }
+
+    /**
+     * Evaluates the open positions of the board again, bypassing the cached board
+     */
+    private static void evaluate(Group18Logic logic) {
+        logic.markBoardDirty();
+        logic.getBoard();
+    }
+
+    /**
+     * Runs the task a number of times and returns the average time of a run in microseconds
+     */
+    private static double averageMicros(Runnable task) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            task.run();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++)
+            task.run();
+
+        return (System.nanoTime() - start) / 1000.0 / MEASURED_ITERATIONS;
+    }
+}
@@ -0,0 +1,100 @@
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that an IQueensLogic implementation gives the same board as a reference implementation
+ * on every board state reachable by placing queens on open positions.
+ * Usage: java LogicCrossCheck Candidate [Reference] [minSize] [maxSize]
+ */
+public class LogicCrossCheck {
+
+    private final String candidateName;
+    private final String referenceName;
+    private int checkedStates;
+
+    public LogicCrossCheck(String candidateName, String referenceName) {
+        this.candidateName = candidateName;
+        this.referenceName = referenceName;
+    }
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        if (args.length < 1) {
+            System.err.println("Usage: java LogicCrossCheck Candidate [Reference] [minSize] [maxSize]");
+            System.exit(1);
+        }
+
+        String referenceName = args.length >= 2 ? args[1] : "Group18Logic";
+        int minSize = args.length >= 3 ? Integer.parseInt(args[2]) : 5;
+        int maxSize = args.length >= 4 ? Integer.parseInt(args[3]) : 6;
+
+        LogicCrossCheck check = new LogicCrossCheck(args[0], referenceName);
+        for (int size = minSize; size <= maxSize; size++) {
+            check.checkAllStates(size);
+            System.out.println("n=" + size + ": " + check.checkedStates + " board states agree");
+        }
+    }
+
+    /**
+     * Compares the boards of every set of queens that can be placed one by one on open positions
+     * @param size The size of the board
+     */
+    public void checkAllStates(int size) throws ReflectiveOperationException {
+        checkedStates = 0;
+        checkFrom(size, new ArrayList<>(), -1);
+    }
+
+    /**
+     * Compares the boards after the placements, and continues with every open position after the last placement
+     */
+    private void checkFrom(int size, List<int[]> placements, int lastIndex) throws ReflectiveOperationException {
+        IQueensLogic candidate = replay(candidateName, size, placements);
+        IQueensLogic reference = replay(referenceName, size, placements);
+
+        int[][] candidateBoard = Boards.copy(candidate.getBoard());
+        int[][] referenceBoard = Boards.copy(reference.getBoard());
+        Queens.closeLogic(candidate);
+        Queens.closeLogic(reference);
+        checkedStates++;
+
+        if (!Arrays.deepEquals(candidateBoard, referenceBoard))
+            throw new IllegalStateException("Boards differ for n=" + size + " after placing " + describe(placements)
+                                            + "\nexpected " + Arrays.deepToString(referenceBoard)
+                                            + "\nbut was  " + Arrays.deepToString(candidateBoard));
+
+        for (int index = lastIndex + 1; index < size * size; index++) {
+            int column = index % size;
+            int row = index / size;
+
+            if (referenceBoard[column][row] == 0) {
+                placements.add(new int[] { column, row });
+                checkFrom(size, placements, index);
+                placements.remove(placements.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Creates a new logic and inserts the queens
+     */
+    private IQueensLogic replay(String className, int size, List<int[]> placements)
+            throws ClassNotFoundException, NoSuchMethodException, InstantiationException,
+                   IllegalAccessException, InvocationTargetException {
+        IQueensLogic logic = Queens.parseLogicParam(className);
+        logic.initializeBoard(size);
+
+        for (int[] placement : placements)
+            logic.insertQueen(placement[0], placement[1]);
+
+        return logic;
+    }
+
+    private String describe(List<int[]> placements) {
+        StringBuilder description = new StringBuilder();
+        for (int[] placement : placements)
+            description.append('(').append(placement[0]).append(',').append(placement[1]).append(')');
+
+        return description.length() == 0 ? "no queens" : description.toString();
+    }
+}
@@ -0,0 +1,293 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.sf.javabdd.*;
+
+/**
+ * Timings and BDD statistics of the logic, cheap enough to record on every call.
+ * The phases are timed with System.nanoTime and added to striped counters, and the factory statistics are
+ * read after each board update instead of being polled.
+ *
+ * The metrics shared by every Group18Logic are registered as the MBean queens:type=LogicMetrics,name=shared
+ * with one queens:type=LogicMetrics,name=shared,phase=... MBean per phase.
+ * Setting the system property queens.metrics.dumpSeconds prints them to standard error at that interval,
+ * and setting queens.metrics.enabled to false makes every logic use LogicMetrics.disabled() instead.
+ *
+ * There is no cache hit ratio: JFactory only counts its operation cache lookups when it is compiled with
+ * CACHESTATS, which the released jar is not, so the ratio would always be unknown.
+ */
+public class LogicMetrics implements LogicMetricsMBean {
+
+    private static final Method RESIZE_CALLBACK;
+    private static LogicMetrics shared;
+    private static final LogicMetrics DISABLED = new LogicMetrics(false);
+
+    static {
+        try {
+            RESIZE_CALLBACK = LogicMetrics.class.getMethod("resized", Object.class, Object.class);
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final boolean enabled;
+
+    /** Building or loading the BDD without queens */
+    public final PhaseTimer construction;
+    /** Restricting the main BDD with and without a queen on one position */
+    public final PhaseTimer restrict;
+    /** Evaluating every open position of the board */
+    public final PhaseTimer boardUpdate;
+    /** Restricting the main BDD with a placed queen */
+    public final PhaseTimer placeQueen;
+    /** Computing the board of a possible next move in the background */
+    public final PhaseTimer speculation;
+
+    private final LongAdder moves = new LongAdder();
+    private volatile int lastNodeCount;
+    private final LongAdder garbageCollections = new LongAdder();
+    private final LongAdder resizes = new LongAdder();
+    private volatile int nodeTableSize;
+    private final LongAdder speculationHits = new LongAdder();
+    private final LongAdder speculationMisses = new LongAdder();
+
+    // The garbage collections of each factory when it was last recorded
+    private final Map<BDDFactory, Integer> lastSeen = new WeakHashMap<>();
+
+    private ScheduledExecutorService dumpExecutor;
+    private ScheduledFuture<?> dumpTask;
+
+    public LogicMetrics() {
+        this(true);
+    }
+
+    private LogicMetrics(boolean enabled) {
+        this.enabled = enabled;
+        construction = new PhaseTimer("construction", enabled);
+        restrict = new PhaseTimer("restrict", enabled);
+        boardUpdate = new PhaseTimer("boardUpdate", enabled);
+        placeQueen = new PhaseTimer("placeQueen", enabled);
+        speculation = new PhaseTimer("speculation", enabled);
+    }
+
+    /**
+     * Returns the metrics shared by every logic that is not given metrics of its own.
+     * They are registered with the platform MBean server the first time they are used
+     */
+    public static synchronized LogicMetrics shared() {
+        if (shared == null && !Boolean.parseBoolean(System.getProperty("queens.metrics.enabled", "true")))
+            shared = DISABLED;
+
+        if (shared == null) {
+            shared = new LogicMetrics();
+            shared.register("shared");
+
+            long dumpSeconds = Long.getLong("queens.metrics.dumpSeconds", 0);
+            if (dumpSeconds > 0)
+                shared.startPeriodicDump(dumpSeconds, System.err);
+        }
+        return shared;
+    }
+
+    /**
+     * Returns metrics that record nothing, for when even the cost of reading the clock matters.
+     * Every timer and counter stays at 0
+     */
+    public static LogicMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Registers the metrics and the timer of every phase with the platform MBean server
+     * @param name The name part of the object names
+     */
+    public void register(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, new ObjectName("queens:type=LogicMetrics,name=" + name));
+            for (PhaseTimer timer : phases())
+                server.registerMBean(timer, new ObjectName("queens:type=LogicMetrics,name=" + name + ",phase=" + timer.getName()));
+        } catch (JMException e) {
+            System.err.println("Could not register the logic metrics: " + e);
+        }
+    }
+
+    /**
+     * Prints the metrics at a fixed interval on a daemon thread, until stopPeriodicDump is called
+     */
+    public synchronized void startPeriodicDump(long periodSeconds, PrintStream out) {
+        stopPeriodicDump();
+        dumpExecutor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "logic-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumpTask = dumpExecutor.scheduleAtFixedRate(() -> out.println(dump()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopPeriodicDump() {
+        if (dumpExecutor == null)
+            return;
+
+        dumpTask.cancel(false);
+        dumpExecutor.shutdown();
+        dumpExecutor = null;
+    }
+
+    /**
+     * Makes the factory report its resizes to these metrics
+     */
+    public void watch(BDDFactory factory) {
+        if (enabled)
+            factory.registerResizeCallback(this, RESIZE_CALLBACK);
+    }
+
+    /**
+     * Called by the factory when its node table grows
+     * @param oldSize The old number of nodes
+     * @param newSize The new number of nodes
+     */
+    public void resized(Object oldSize, Object newSize) {
+        resizes.increment();
+        if (newSize instanceof Number)
+            nodeTableSize = ((Number) newSize).intValue();
+    }
+
+    /**
+     * Records a placed queen
+     * @param nodeCount The number of nodes in the main BDD after the move
+     */
+    public void recordMove(int nodeCount) {
+        recordMoves(1, nodeCount);
+    }
+
+    /**
+     * Records queens placed in one move
+     * @param queens The number of queens placed
+     * @param nodeCount The number of nodes in the main BDD after the move
+     */
+    public void recordMoves(int queens, int nodeCount) {
+        if (!enabled)
+            return;
+
+        moves.add(queens);
+        lastNodeCount = nodeCount;
+    }
+
+    /**
+     * Records a move while speculation is on
+     * @param hit Whether the board after the move had been computed in the background
+     */
+    public void recordSpeculation(boolean hit) {
+        if (!enabled)
+            return;
+
+        if (hit)
+            speculationHits.increment();
+        else
+            speculationMisses.increment();
+    }
+
+    /**
+     * Adds the garbage collections of the factory since it was last recorded
+     */
+    public void recordFactory(BDDFactory factory) {
+        if (!enabled)
+            return;
+
+        int gcs = factory.getGCStats().num;
+        synchronized (lastSeen) {
+            Integer last = lastSeen.put(factory, gcs);
+            garbageCollections.add(gcs - (last == null ? 0 : last));
+        }
+    }
+
+    @Override
+    public long getMoveCount() {
+        return moves.sum();
+    }
+
+    @Override
+    public int getLastNodeCount() {
+        return lastNodeCount;
+    }
+
+    @Override
+    public long getGarbageCollections() {
+        return garbageCollections.sum();
+    }
+
+    @Override
+    public long getResizes() {
+        return resizes.sum();
+    }
+
+    @Override
+    public int getNodeTableSize() {
+        return nodeTableSize;
+    }
+
+    @Override
+    public long getSpeculationHits() {
+        return speculationHits.sum();
+    }
+
+    @Override
+    public long getSpeculationMisses() {
+        return speculationMisses.sum();
+    }
+
+    @Override
+    public double getSpeculationHitRatio() {
+        long moves = speculationHits.sum() + speculationMisses.sum();
+        return moves == 0 ? Double.NaN : (double) speculationHits.sum() / moves;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder text = new StringBuilder("Logic metrics:");
+        for (PhaseTimer timer : phases())
+            text.append("\n  ").append(timer);
+
+        text.append(String.format("%n  moves: %d, nodes after the last move: %d%n  factory: %d garbage collections, %d resizes, node table %d",
+                                  getMoveCount(), getLastNodeCount(), getGarbageCollections(), getResizes(),
+                                  getNodeTableSize()));
+        text.append(String.format("%n  speculation: %d hits, %d misses, hit ratio %.3f",
+                                  getSpeculationHits(), getSpeculationMisses(), getSpeculationHitRatio()));
+        return text.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (PhaseTimer timer : phases())
+            timer.reset();
+
+        moves.reset();
+        lastNodeCount = 0;
+        garbageCollections.reset();
+        resizes.reset();
+        nodeTableSize = 0;
+        speculationHits.reset();
+        speculationMisses.reset();
+    }
+
+    private PhaseTimer[] phases() {
+        return new PhaseTimer[] { construction, restrict, boardUpdate, placeQueen, speculation };
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * The JMX view of LogicMetrics. The time of every phase is published as a PhaseTimerMBean of its own
+ */
+public interface LogicMetricsMBean {
+
+    /**
+     * Returns the number of queens placed
+     */
+    long getMoveCount();
+
+    /**
+     * Returns the number of nodes in the main BDD after the last move
+     */
+    int getLastNodeCount();
+
+    /**
+     * Returns the number of garbage collections of the BDD factories seen so far
+     */
+    long getGarbageCollections();
+
+    /**
+     * Returns the number of times a node table has grown
+     */
+    long getResizes();
+
+    /**
+     * Returns the size of the node table after the last resize, or 0 if no table has grown
+     */
+    int getNodeTableSize();
+
+    /**
+     * Returns the number of moves whose board had been computed in the background
+     */
+    long getSpeculationHits();
+
+    /**
+     * Returns the number of moves made while speculation was on whose board had not been computed yet
+     */
+    long getSpeculationMisses();
+
+    /**
+     * Returns the share of moves whose board had been computed in the background, or NaN if speculation is off
+     */
+    double getSpeculationHitRatio();
+
+    /**
+     * Returns every metric as text
+     */
+    String dump();
+
+    /**
+     * Sets every metric back to 0
+     */
+    void reset();
+}
@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import net.sf.javabdd.*;
+
+/**
+ * Evaluates the open positions of the board on several threads.
+ * A BDD factory is not thread safe, so every worker owns a factory of its own. The BDD without queens is
+ * copied into it once per board size, so an update only hands over the placed queens: the worker restricts
+ * its copy with them before evaluating its share of the positions.
+ */
+public class ParallelEvaluator {
+
+    private final ForkJoinPool pool;
+    private final Worker[] workers;
+    private BDD serializedBase;
+    private String serialized;
+
+    /**
+     * @param parallelism The number of workers
+     * @param factoryConfig The settings of the factories owned by the workers
+     */
+    public ParallelEvaluator(int parallelism, BDDFactoryConfig factoryConfig) {
+        factoryConfig.requireSeveralFactories("the parallel evaluation");
+        pool = new ForkJoinPool(parallelism);
+        workers = new Worker[parallelism];
+        for (int i = 0; i < parallelism; i++)
+            workers[i] = new Worker(factoryConfig);
+    }
+
+    public int getParallelism() {
+        return workers.length;
+    }
+
+    /**
+     * Evaluates every open position of the board and writes the result to the board
+     * @param factory The factory of the BDD
+     * @param base The BDD with the rules and without queens. It is serialized when it changes
+     * @param placedVars The variable ids of the placed queens
+     * @param board The board to update. Only positions with value 0 are evaluated
+     * @param variables Entry (size * row) + column is the variable id of that position
+     */
+    public void evaluate(BDDFactory factory, BDD base, int[] placedVars, int[][] board, int[] variables) {
+        int size = board.length;
+        int varNum = factory.varNum();
+        if (base != serializedBase) {
+            serialized = BDDSnapshot.toText(factory, base);
+            serializedBase = base;
+        }
+        String loaded = serialized;
+
+        // Deal the open positions out in turns, so every worker gets positions from the whole board
+        var shares = new ArrayList<ArrayList<Integer>>();
+        for (int i = 0; i < workers.length; i++)
+            shares.add(new ArrayList<>());
+
+        int open = 0;
+        for (int column = 0; column < size; column++)
+            for (int row = 0; row < size; row++)
+                if (board[column][row] == 0)
+                    shares.get(open++ % workers.length).add((size * row) + column);
+
+        var results = new ArrayList<Future<int[]>>();
+        for (int i = 0; i < workers.length; i++) {
+            Worker worker = workers[i];
+            int[] positions = shares.get(i).stream().mapToInt(Integer::intValue).toArray();
+            results.add(pool.submit(() -> worker.evaluate(loaded, varNum, placedVars, positions, variables)));
+        }
+
+        for (int i = 0; i < workers.length; i++) {
+            int[] values = join(results.get(i));
+            var positions = shares.get(i);
+
+            for (int j = 0; j < values.length; j++)
+                board[positions.get(j) % size][positions.get(j) / size] = values[j];
+        }
+    }
+
+    /**
+     * Stops the threads and releases the factories of the workers
+     */
+    public void shutdown() {
+        pool.shutdown();
+        for (Worker worker : workers)
+            worker.done();
+    }
+
+    private int[] join(Future<int[]> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evaluating the board", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Evaluation of the board failed", e.getCause());
+        }
+    }
+
+    /**
+     * Owns a factory with a copy of the BDD without queens, and evaluates positions on it.
+     * A worker is only used by one task at a time
+     */
+    private static class Worker {
+        private final BDDFactoryConfig factoryConfig;
+        private final BDDScope.References references = new BDDScope.References();
+        private BDDFactory factory;
+        private String loaded; // The serialized BDD that base is a copy of
+        private BDD base;
+
+        Worker(BDDFactoryConfig factoryConfig) {
+            this.factoryConfig = factoryConfig;
+        }
+
+        /**
+         * Restricts the copy of the BDD without queens with the placed queens and evaluates the positions
+         * @return The value of each position in the same order as the positions
+         */
+        int[] evaluate(String serialized, int varNum, int[] placedVars, int[] positions, int[] variables) throws IOException {
+            loadBase(serialized, varNum);
+
+            try (BDDScope scope = new BDDScope(references)) {
+                BDD queens = scope.track(factory.one());
+                for (int var : placedVars)
+                    queens.andWith(factory.ithVar(var));
+                BDD bdd = scope.track(base.restrict(queens));
+
+                int[] values = new int[positions.length];
+                for (int i = 0; i < positions.length; i++)
+                    values[i] = Group18Logic.evaluateVariable(factory, bdd, variables[positions[i]], references);
+
+                return values;
+            }
+        }
+
+        /**
+         * Copies the BDD without queens into the factory, unless it is already there
+         */
+        private void loadBase(String serialized, int varNum) throws IOException {
+            if (serialized == loaded && factory != null)
+                return;
+
+            prepareFactory(varNum);
+            if (base != null)
+                references.release(base);
+            base = null;
+            loaded = null;
+            base = references.owned(BDDSnapshot.fromText(factory, serialized));
+            loaded = serialized;
+        }
+
+        /**
+         * Creates a factory with the number of variables, unless the current one already has it
+         */
+        private void prepareFactory(int varNum) {
+            if (factory != null && factory.varNum() == varNum)
+                return;
+
+            done();
+            int size = (int) Math.round(Math.sqrt(varNum));
+            factory = factoryConfig.createFactory(size);
+            factory.setVarNum(varNum);
+        }
+
+        void done() {
+            if (base != null)
+                references.release(base);
+            if (factory != null)
+                factory.done();
+            factory = null;
+            base = null;
+            loaded = null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adds up the runs of one phase of the logic. Recording a run only updates a few striped counters,
+ * so it can be called from several threads without contention.
+ * A disabled timer neither reads the clock nor records anything
+ */
+public class PhaseTimer implements PhaseTimerMBean {
+
+    private final String name;
+    private final boolean enabled;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public PhaseTimer(String name) {
+        this(name, true);
+    }
+
+    public PhaseTimer(String name, boolean enabled) {
+        this.name = name;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the start of a run to pass to record, or 0 if the timer is disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a run that started at the given System.nanoTime
+     */
+    public void record(long startNanos) {
+        if (!enabled)
+            return;
+
+        long nanos = System.nanoTime() - startNanos;
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return totalNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getAverageMicros() {
+        long runs = count.sum();
+        return runs == 0 ? 0 : totalNanos.sum() / 1e3 / runs;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return maxNanos.get() / 1e3;
+    }
+
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d runs, %.1f ms total, %.1f us average, %.1f us max",
+                             name, getCount(), getTotalMillis(), getAverageMicros(), getMaxMicros());
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * The JMX view of a PhaseTimer
+ */
+public interface PhaseTimerMBean {
+
+    /**
+     * Returns the number of times the phase has run
+     */
+    long getCount();
+
+    /**
+     * Returns the total time spent in the phase in milliseconds
+     */
+    double getTotalMillis();
+
+    /**
+     * Returns the average time of a run in microseconds
+     */
+    double getAverageMicros();
+
+    /**
+     * Returns the longest run in microseconds
+     */
+    double getMaxMicros();
+}
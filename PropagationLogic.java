@@ -0,0 +1,491 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Logic for the n-queens problem on large boards (n in the hundreds), where a BDD or a full search does not finish.
+ * The queens on the board are propagated over the rows, columns and diagonals: attacked positions are closed,
+ * a row or column with a single open position gets a queen, and a row or column without one has no solution.
+ * The positions left open are decided by searching for solutions with and without a queen on them, first by
+ * repairing the last solution with min-conflicts and then by a depth first search with propagation, which can
+ * also prove that there is no solution. Like in BitboardLogic, every solution found decides many positions at once.
+ *
+ * The searches after a move share a time budget. Positions that are not decided within it are reported as 0,
+ * so a 0 means that a queen may stand there or that it is not known yet (see getUndecidedCount).
+ * The budget is set with the constructor or the system property queens.propagation.budgetMillis.
+ */
+public class PropagationLogic implements IQueensLogic {
+
+    private static final long DEFAULT_BUDGET_MILLIS = Long.getLong("queens.propagation.budgetMillis", 250);
+    private static final int REPAIR_MOVES_PER_ROW = 4;
+    private static final int SHUFFLE_ONE_IN = 8;
+    private static final int SEARCH_NODE_LIMIT = 20_000;
+    private static final int FOUND = 1, UNKNOWN = 0, NONE = -1;
+
+    private final long budgetNanos;
+    private Random random;
+    private long deadline;
+
+    private int size;
+    private int[][] board;
+    private boolean boardDirty;
+    private int undecided;
+
+    // The queens of the current search, starting with the queens on the board
+    private int[] queenInRow;            // Column of the queen in each row, or -1
+    private int[] queenInColumn;         // Row of the queen in each column, or -1
+    private boolean[] diagonalTaken;     // Indexed by row - column + size - 1
+    private boolean[] antiDiagonalTaken; // Indexed by row + column
+    private int[] rowOptions;            // Open positions in each row
+    private int[] columnOptions;         // Open positions in each column
+    private int excluded = -1;           // A position that has to stay empty in the current search, or -1
+    private int[] trail;                 // The queens in the order they were placed
+    private int trailSize;
+
+    // What the solutions found after a move show. Positions are (size * row) + column
+    private boolean[] seenWithQueen;
+    private int[] alwaysQueenColumn;     // The column of the queen in the row in every solution found, or -1
+    private boolean solutionFound;
+
+    // The queens of min-conflicts and how many of them attack each column and diagonal
+    private int[] assignment;
+    private int[] columnHits, diagonalHits, antiDiagonalHits;
+    private int[] conflicted;
+    private int searchNodes;
+
+    public PropagationLogic() {
+        this(DEFAULT_BUDGET_MILLIS);
+    }
+
+    /**
+     * @param budgetMillis The time the searches after a move may take together
+     */
+    public PropagationLogic(long budgetMillis) {
+        this.budgetNanos = budgetMillis * 1_000_000;
+    }
+
+    @Override
+    public void initializeBoard(int size) {
+        this.size = size;
+        board = new int[size][size];
+        random = new Random(size);
+
+        queenInRow = new int[size];
+        queenInColumn = new int[size];
+        diagonalTaken = new boolean[2 * size - 1];
+        antiDiagonalTaken = new boolean[2 * size - 1];
+        rowOptions = new int[size];
+        columnOptions = new int[size];
+        trail = new int[size];
+
+        seenWithQueen = new boolean[size * size];
+        alwaysQueenColumn = new int[size];
+        assignment = new int[size];
+        columnHits = new int[size];
+        diagonalHits = new int[2 * size - 1];
+        antiDiagonalHits = new int[2 * size - 1];
+        conflicted = new int[size];
+
+        Arrays.fill(assignment, -1); // The first repair starts by placing the queens greedily
+
+        boardDirty = true;
+    }
+
+    @Override
+    public int[][] getBoard() {
+        if (boardDirty) {
+            updateBoard();
+            boardDirty = false;
+        }
+        return board;
+    }
+
+    @Override
+    public void insertQueen(int column, int row) {
+        if (board[column][row] == 0) {
+            board[column][row] = 1;
+            boardDirty = true;
+        }
+    }
+
+    /**
+     * Returns the number of open positions that were not decided within the budget of the last move
+     */
+    public int getUndecidedCount() {
+        getBoard();
+        return undecided;
+    }
+
+    /**
+     * Decides the open positions by propagation, and then by searching for solutions until the budget is spent
+     */
+    private void updateBoard() {
+        deadline = System.nanoTime() + budgetNanos;
+        undecided = 0;
+        reset();
+
+        // Every queen on the board is either placed by the user or in every solution
+        for (int column = 0; column < size; column++)
+            for (int row = 0; row < size; row++)
+                if (board[column][row] == 1) {
+                    if (!isOpen(column, row)) {
+                        blockOpenPositions();
+                        return;
+                    }
+                    place(column, row);
+                }
+
+        if (!propagate()) {
+            blockOpenPositions();
+            return;
+        }
+
+        int base = trailSize;
+        for (int column = 0; column < size; column++)
+            for (int row = 0; row < size; row++)
+                if (board[column][row] == 0) {
+                    if (queenInRow[row] == column)
+                        board[column][row] = 1;
+                    else if (!isOpen(column, row))
+                        board[column][row] = -1;
+                }
+
+        Arrays.fill(seenWithQueen, false);
+        solutionFound = false;
+        if (solve() == NONE) {
+            blockOpenPositions();
+            return;
+        }
+
+        for (int row = 0; row < size; row++)
+            for (int column = 0; column < size; column++) {
+                if (board[column][row] != 0)
+                    continue;
+
+                if (!seenWithQueen[(size * row) + column]) {
+                    int result = UNKNOWN;
+                    if (!outOfTime()) {
+                        place(column, row);
+                        result = propagate() ? solve() : NONE;
+                        undoTo(base);
+                    }
+
+                    if (result == NONE) {
+                        board[column][row] = -1;
+                        continue;
+                    }
+                    if (result == UNKNOWN) {
+                        undecided++;
+                        continue;
+                    }
+                }
+
+                if (!solutionFound || alwaysQueenColumn[row] == column) {
+                    int result = UNKNOWN;
+                    if (!outOfTime()) {
+                        exclude((size * row) + column);
+                        result = propagate() ? solve() : NONE;
+                        undoTo(base);
+                        exclude(-1);
+                    }
+
+                    if (result == NONE)
+                        board[column][row] = 1;
+                    else if (result == UNKNOWN)
+                        undecided++;
+                }
+            }
+    }
+
+    private void blockOpenPositions() {
+        for (int column = 0; column < size; column++)
+            for (int row = 0; row < size; row++)
+                if (board[column][row] == 0)
+                    board[column][row] = -1;
+    }
+
+    private boolean outOfTime() {
+        return System.nanoTime() > deadline;
+    }
+
+    /************************************
+     ******** Propagation ***************
+     ***********************************/
+
+    private void reset() {
+        Arrays.fill(queenInRow, -1);
+        Arrays.fill(queenInColumn, -1);
+        Arrays.fill(diagonalTaken, false);
+        Arrays.fill(antiDiagonalTaken, false);
+        Arrays.fill(rowOptions, size);
+        Arrays.fill(columnOptions, size);
+        excluded = -1;
+        trailSize = 0;
+    }
+
+    /**
+     * Returns true if a queen can still be placed on the position
+     */
+    private boolean isOpen(int column, int row) {
+        return queenInRow[row] < 0 && queenInColumn[column] < 0
+            && !diagonalTaken[row - column + size - 1] && !antiDiagonalTaken[row + column]
+            && (size * row) + column != excluded;
+    }
+
+    /**
+     * Places a queen on an open position and closes the positions it attacks
+     */
+    private void place(int column, int row) {
+        countAttacked(column, row, -1);
+        queenInRow[row] = column;
+        queenInColumn[column] = row;
+        diagonalTaken[row - column + size - 1] = true;
+        antiDiagonalTaken[row + column] = true;
+        trail[trailSize++] = (size * row) + column;
+    }
+
+    /**
+     * Removes the queens placed after the mark, last first, and opens the positions again
+     */
+    private void undoTo(int mark) {
+        while (trailSize > mark) {
+            int position = trail[--trailSize];
+            int column = position % size;
+            int row = position / size;
+
+            queenInRow[row] = -1;
+            queenInColumn[column] = -1;
+            diagonalTaken[row - column + size - 1] = false;
+            antiDiagonalTaken[row + column] = false;
+            countAttacked(column, row, 1);
+        }
+    }
+
+    /**
+     * Keeps the position empty, or no position for -1. Only used when the board queens are the only ones placed
+     */
+    private void exclude(int position) {
+        if (excluded >= 0) {
+            int previous = excluded;
+            excluded = -1;
+            countOpen(previous % size, previous / size, 1);
+        }
+        if (position >= 0) {
+            countOpen(position % size, position / size, -1);
+            excluded = position;
+        }
+    }
+
+    /**
+     * Adds the change to the options of every open position attacked by a queen on the position, itself included.
+     * Two lines through the queen only meet at the queen, so every position is counted once
+     */
+    private void countAttacked(int column, int row, int change) {
+        for (int i = 0; i < size; i++) {
+            if (i != column)
+                countOpen(i, row, change);
+            if (i != row)
+                countOpen(column, i, change);
+        }
+
+        for (int d = -Math.min(column, row); d < size - Math.max(column, row); d++)
+            if (d != 0)
+                countOpen(column + d, row + d, change);
+
+        for (int d = -Math.min(column, size - 1 - row); d < Math.min(size - column, row + 1); d++)
+            if (d != 0)
+                countOpen(column + d, row - d, change);
+
+        countOpen(column, row, change);
+    }
+
+    private void countOpen(int column, int row, int change) {
+        if (isOpen(column, row)) {
+            rowOptions[row] += change;
+            columnOptions[column] += change;
+        }
+    }
+
+    /**
+     * Places the queens that are forced by a row or column with a single open position
+     * @return false if a row or column has no open position left, meaning that there is no solution
+     */
+    private boolean propagate() {
+        boolean changed = true;
+
+        while (changed) {
+            changed = false;
+
+            for (int row = 0; row < size; row++)
+                if (queenInRow[row] < 0) {
+                    if (rowOptions[row] == 0)
+                        return false;
+                    if (rowOptions[row] == 1) {
+                        int column = 0;
+                        while (!isOpen(column, row))
+                            column++;
+                        place(column, row);
+                        changed = true;
+                    }
+                }
+
+            for (int column = 0; column < size; column++)
+                if (queenInColumn[column] < 0) {
+                    if (columnOptions[column] == 0)
+                        return false;
+                    if (columnOptions[column] == 1) {
+                        int row = 0;
+                        while (!isOpen(column, row))
+                            row++;
+                        place(column, row);
+                        changed = true;
+                    }
+                }
+        }
+        return true;
+    }
+
+    /************************************
+     ******** Search ********************
+     ***********************************/
+
+    /**
+     * Searches for a solution with the queens placed so far
+     * @return FOUND, NONE if there is no solution, or UNKNOWN if the search gave up
+     */
+    private int solve() {
+        if (repair() == FOUND)
+            return FOUND;
+
+        searchNodes = 0;
+        return search();
+    }
+
+    /**
+     * Min-conflicts: puts a queen in every open row, starting from the last solution with some queens moved,
+     * and moves a random queen in conflict to the least attacked open position of its row until there are no conflicts
+     * @return FOUND, or UNKNOWN if the conflicts were not resolved in time. NONE if a row has no open position
+     */
+    private int repair() {
+        Arrays.fill(columnHits, 0);
+        Arrays.fill(diagonalHits, 0);
+        Arrays.fill(antiDiagonalHits, 0);
+
+        for (int row = 0; row < size; row++)
+            if (queenInRow[row] < 0) {
+                boolean keep = assignment[row] >= 0 && isOpen(assignment[row], row) && random.nextInt(SHUFFLE_ONE_IN) != 0;
+                int column = keep ? assignment[row] : leastConflicted(row);
+                if (column < 0)
+                    return NONE;
+                assign(row, column, 1);
+            }
+
+        int moves = REPAIR_MOVES_PER_ROW * size;
+
+        for (int move = 0; move < moves; move++) {
+            if ((move & 63) == 0 && outOfTime())
+                return UNKNOWN;
+
+            int conflictedCount = 0;
+            for (int row = 0; row < size; row++)
+                if (queenInRow[row] < 0 && conflicts(row, assignment[row]) > 3)
+                    conflicted[conflictedCount++] = row;
+
+            if (conflictedCount == 0) {
+                recordSolution();
+                return FOUND;
+            }
+
+            int row = conflicted[random.nextInt(conflictedCount)];
+            assign(row, assignment[row], -1);
+            assign(row, leastConflicted(row), 1);
+        }
+        return UNKNOWN;
+    }
+
+    private void assign(int row, int column, int change) {
+        assignment[row] = column;
+        columnHits[column] += change;
+        diagonalHits[row - column + size - 1] += change;
+        antiDiagonalHits[row + column] += change;
+    }
+
+    private int conflicts(int row, int column) {
+        return columnHits[column] + diagonalHits[row - column + size - 1] + antiDiagonalHits[row + column];
+    }
+
+    /**
+     * Returns the open position of the row attacked by the fewest queens, picking among ties at random, or -1
+     */
+    private int leastConflicted(int row) {
+        int best = -1;
+        int bestConflicts = Integer.MAX_VALUE;
+        int ties = 0;
+
+        for (int column = 0; column < size; column++) {
+            if (!isOpen(column, row))
+                continue;
+
+            // Positions no solution has had a queen on yet count as a little less attacked, to spread the solutions
+            int conflicts = 2 * conflicts(row, column) + (seenWithQueen[(size * row) + column] ? 1 : 0);
+            if (conflicts < bestConflicts) {
+                best = column;
+                bestConflicts = conflicts;
+                ties = 1;
+            } else if (conflicts == bestConflicts && random.nextInt(++ties) == 0) {
+                best = column;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Depth first search with propagation, placing a queen in the row with the fewest open positions first
+     */
+    private int search() {
+        if (++searchNodes > SEARCH_NODE_LIMIT || outOfTime())
+            return UNKNOWN;
+
+        int row = -1;
+        for (int r = 0; r < size; r++)
+            if (queenInRow[r] < 0 && (row < 0 || rowOptions[r] < rowOptions[row]))
+                row = r;
+
+        if (row < 0) {
+            recordSolution();
+            return FOUND;
+        }
+
+        int mark = trailSize;
+
+        for (int column = 0; column < size; column++) {
+            if (!isOpen(column, row))
+                continue;
+
+            place(column, row);
+            int result = propagate() ? search() : NONE;
+            undoTo(mark);
+
+            if (result != NONE)
+                return result;
+        }
+        return NONE;
+    }
+
+    /**
+     * Records the positions that the solution of the placed and assigned queens decides,
+     * and keeps it as the start of the next repair
+     */
+    private void recordSolution() {
+        for (int row = 0; row < size; row++) {
+            int column = queenInRow[row] >= 0 ? queenInRow[row] : assignment[row];
+            assignment[row] = column;
+            seenWithQueen[(size * row) + column] = true;
+
+            if (!solutionFound)
+                alwaysQueenColumn[row] = column;
+            else if (alwaysQueenColumn[row] != column)
+                alwaysQueenColumn[row] = -1;
+        }
+        solutionFound = true;
+    }
+}
@@ -1,4 +1,10 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 
 import javax.swing.*;
@@ -16,6 +22,11 @@ public class Queens {
      * Standard values for size (length of square board) is 8. Should be greater than 4
      */
 	public static void main(String[] args) {
+		if (args.length >= 1 && args[0].equals("--headless")) {
+			runHeadless(args);
+			return;
+		}
+
 		boolean err = args.length < 1;
         String errMsg = "You have to atleast one argument (an IQueensLogic-implementation)";
 
@@ -64,17 +75,14 @@ public class Queens {
            	System.exit(1);
         }
 
-		//Initializing the logic
-		logic.initializeBoard(size);
-
 		try {
-			// Setup of the frame containing the game
-			QueensGUI g = new QueensGUI(logic);
+			// Setup of the frame containing the game. The GUI initializes the logic in the background
+			QueensGUI g = new QueensGUI(logic, size);
 			JFrame f = new JFrame();
-			f.setSize(200 + size*100, 200 + size*100);
 			f.setTitle("n-queens Puzzle");
 			f.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 			f.getContentPane().add(g);
+			f.pack(); // The GUI picks a size that fits the screen
 			f.setVisible(true);
 		}
 	    catch (IOException e){
@@ -83,14 +91,45 @@ public class Queens {
 	    }
 	}
 	
+    /**
+     * Runs move scripts through the logic without opening a window.
+     * Valid arguments: --headless Logic [scriptFile]. The scripts are read from standard input
+     * when no file or - is given, and the results are written to standard output
+     */
+    public static void runHeadless(String[] args) {
+    	if (args.length < 2) {
+    		printHelp("You have to give an IQueensLogic-implementation to run headless");
+    		System.exit(1);
+    	}
+
+    	try {
+    		IQueensLogic logic = parseLogicParam(args[1]);
+    		boolean fromStdin = args.length < 3 || args[2].equals("-");
+
+    		try (BufferedReader in = new BufferedReader(fromStdin ? new InputStreamReader(System.in) : new FileReader(args[2]));
+    		     PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+    		     HeadlessRunner runner = new HeadlessRunner(logic)) {
+    			runner.run(in, out);
+    		}
+    	} catch (ReflectiveOperationException roe) {
+    		printHelp("Your Logic could not be created: " + roe.toString());
+    		System.exit(1);
+    	} catch (IOException ioe) {
+    		printHelp("Could not read the scripts: " + ioe.toString());
+    		System.exit(1);
+    	}
+    }
+
     /**
      * Printing error and help-message
      */
     public static void printHelp(String errMsg) {
     	System.err.println(errMsg);
     	System.err.println("Usage: java QueensLogic [size]");
+    	System.err.println("   or: java Queens --headless <Logic> [scriptFile]");
     	System.err.println("\tQueensLogic\t\t- specifies a class implementing IQueensLogic");
     	System.err.println("\tsize\t\t - Must be an integer greater or equal to 5. Defaults to 8.");
+    	System.err.println("\tscriptFile\t - Lines of \"size column,row column,row ...\". Defaults to standard input.");
     }
     
     /**
@@ -103,4 +142,18 @@ public class Queens {
                    InvocationTargetException {    	
     	return (IQueensLogic)Class.forName(cmdParam).getConstructor().newInstance();
     }
+
+    /**
+     * Releases the threads and BDD factories of the logic, if it holds any
+     */
+    public static void closeLogic(IQueensLogic logic) {
+    	if (!(logic instanceof AutoCloseable))
+    		return;
+
+    	try {
+    		((AutoCloseable) logic).close();
+    	} catch (Exception e) {
+    		throw new IllegalStateException("Could not close the logic", e);
+    	}
+    }
 }
\ No newline at end of file
@@ -1,15 +1,24 @@
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * GUI to show the n-queens problem, listening for input from the user, and interact with the interactive
  * configurator. The user clicks on the place where (s)he wants to place a queen, after which the board
  * is updated using the interactive configurator (logic) parsed to the constructor as a parameter.  
 
+ * The logic is only used on a background thread, so the window stays responsive while the board is computed.
+ * The last known board is painted in the meantime, positions are filled in as the logic decides them
+ * (if it is an IProgressiveQueensLogic), and clicks made while the logic is busy are inserted together afterwards.
+ * The board is drawn by a BoardRenderer from cached images, scaled so large boards fit on the screen,
+ * and only the positions that change are repainted.
+
  * @author Mai Ajspur
  * @version 16.02.2018
  * 
@@ -17,92 +26,90 @@ import java.io.IOException;
 public class QueensGUI extends JComponent implements MouseListener
 {
 	final static long 	serialVersionUID = 1234567890;
-	final int 			imgSize = 100; // Size of images to draw board
 	
 	private IQueensLogic logic; // The logic that keeps track of what is legal or not	
+	private final BoardRenderer renderer; // Draws the board from cached images
 	
-	// Images for drawing the board
-	private Image 		part, queen, invalid, backgroundW, backgroundB;
-	private Image 		border_left,border_right,border_top,border_bottom;
-	private Image 		corner_left_top, corner_left_bottom,corner_right_top,corner_right_bottom;
+	// Only the event dispatch thread uses these fields. The logic is only used by the executor
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "queens-logic");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private int[][] shownBoard; // The last known board, with the positions decided so far
+	private boolean busy; // True while the logic is working
+	private final List<Point> pendingClicks = new ArrayList<>(); // Clicks waiting for the logic to finish
 	
+	/*
+	 * Shows the board of a logic that is already initialized. The board is read once on the calling thread
+	 */
 	public QueensGUI(IQueensLogic logic)  throws IOException {
-		part = ImageIO.read(new File("imgs/maze.png"));
-		queen = ImageIO.read(new File("imgs/queen.png"));
-		invalid = ImageIO.read(new File("imgs/invalid.png"));
-		backgroundW = ImageIO.read(new File("imgs/backgroundWhite.png"));
-        backgroundB = ImageIO.read(new File("imgs/backgroundBlack.png"));
-		
-		border_left = ImageIO.read(new File("imgs/board_left.png"));
-		border_right = ImageIO.read(new File("imgs/board_right.png"));
-		border_top = ImageIO.read(new File("imgs/board_top.png"));
-		border_bottom = ImageIO.read(new File("imgs/board_bottom.png"));
-		corner_left_top = ImageIO.read(new File("imgs/corner_top_left.png"));
-		corner_left_bottom = ImageIO.read(new File("imgs/corner_bottom_left.png"));
-		corner_right_top = ImageIO.read(new File("imgs/corner_top_right.png"));
-		corner_right_bottom = ImageIO.read(new File("imgs/corner_bottom_right.png"));
-		
+		this(logic, Boards.copy(logic.getBoard()));
+	}
+	
+	/*
+	 * Initializes the logic with the size on the background thread and shows an empty board until it is done
+	 */
+	public QueensGUI(IQueensLogic logic, int size)  throws IOException {
+		this(logic, new int[size][size]);
+		startWork(size, new ArrayList<>());
+	}
+	
+	private QueensGUI(IQueensLogic logic, int[][] board)  throws IOException {
 		this.logic = logic;
+		this.shownBoard = board;
+		this.renderer = new BoardRenderer(board.length);
+		this.setDoubleBuffered(true);
 		this.addMouseListener(this);
+		
+		// Start at the largest size that fits on the screen
+		if (!GraphicsEnvironment.isHeadless()) {
+			Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+			renderer.setTileSize(renderer.fitTileSize(screen.width - 100, screen.height - 100));
+		}
+		this.setPreferredSize(renderer.getBoardSize());
 	}
 
 	/*
-	 * Draws the current game board.
+	 * Draws the part of the last known game board inside the clip, at the size that fits the component.
 	 */
-	public void paint(Graphics g){
-		this.setDoubleBuffered(true);
+	protected void paintComponent(Graphics g){
 		Insets in = getInsets();               
 		g.translate(in.left, in.top);            
-
-		int[][] gameboard = logic.getBoard();
-		int cols = gameboard.length;
-		int rows = cols;
+		renderer.setTileSize(renderer.fitTileSize(getWidth() - in.left - in.right, getHeight() - in.top - in.bottom));
 		
-        // draw borders
-        for (int i = 0; i < cols; i++) {
-            g.drawImage(border_left, 0, imgSize+imgSize*i, this);
-            g.drawImage(border_right, imgSize + gameboard.length*imgSize, imgSize + imgSize*i, this); 
-            g.drawImage(border_top, imgSize+imgSize*i, 0, this);
-            g.drawImage(border_bottom, imgSize+imgSize*i, imgSize + gameboard.length*imgSize, this);
-        }
-		// draw corners
-		g.drawImage(corner_left_top, 0, 0, this);
-		g.drawImage(corner_left_bottom, 0, imgSize + rows*imgSize, this);
-		g.drawImage(corner_right_top, imgSize + imgSize*cols, 0, this);
-		g.drawImage(corner_right_bottom, imgSize + imgSize*cols, imgSize + rows*imgSize, this);
-
-        // draw board
-		for (int c = 0; c < cols; c++){
-			for (int r = 0; r < rows; r++){
-				int player = gameboard[c][r];
-                
-                if ( (c+r)%2 == 0 ) // white squares
-                	g.drawImage(backgroundW, imgSize+imgSize*c, imgSize+imgSize*r, this);
-                else // black squares
-                	g.drawImage(backgroundB, imgSize+imgSize*c, imgSize+imgSize*r, this);
-                
-                if ( player == 1 ) // queen stands on square
-					g.drawImage(queen, imgSize+imgSize*c, imgSize+imgSize*r, this);
-				if (player == -1) // no queen allowed
-					g.drawImage(invalid, imgSize+imgSize*c, imgSize+imgSize*r, this);
-				
-                g.drawImage(part, imgSize+imgSize*c, imgSize+imgSize*r, this);
-			}
-		}    
+		Graphics2D g2 = (Graphics2D) g;
+		renderer.paint(g2, shownBoard, g.getClipBounds());
+		
+		// draw the queens that are waiting to be inserted, and the busy indicator
+		for (Point click : pendingClicks)
+			renderer.paintQueen(g2, click.x, click.y);
+		if (busy) {
+			Rectangle banner = bannerBounds();
+			g.setColor(new Color(0, 0, 0, 160));
+			g.fillRoundRect(banner.x, banner.y, banner.width, banner.height, banner.height/2, banner.height/2);
+			g.setColor(Color.WHITE);
+			g.setFont(g.getFont().deriveFont(Font.BOLD, banner.height/2.5f));
+			g.drawString("Thinking...", banner.x + banner.height/2, banner.y + 2*banner.height/3);
+		}
  	}
 
 	/*
 	 * When the user clicks on one of the board squares, the corresponding
-	 * column and row is parsed to the logic. 
+	 * column and row is parsed to the logic. Clicks made while the logic is busy are
+	 * inserted together when it is done.
 	 */
 	public void mouseClicked(MouseEvent e){
-        int col = e.getX()/100 - 1;
-        int row = e.getY()/100 - 1;
+		Insets in = getInsets();
+		Point click = renderer.cellAt(e.getX() - in.left, e.getY() - in.top);
 
-        int size = logic.getBoard().length;
-		if ((col >= 0) && (col < size) && (row >= 0) && (row < size)) 
-			logic.insertQueen(col, row);
-		repaint();
+		if (click != null && shownBoard[click.x][click.y] == 0) {
+			if (!pendingClicks.contains(click))
+				pendingClicks.add(click);
+			repaintCell(click.x, click.y);
+			if (!busy)
+				startWork(0, takePendingClicks());
+		}
 	}
 
 	// Not used methods from the interface of MouseListener 
@@ -110,5 +117,136 @@ public class QueensGUI extends JComponent implements MouseListener
 	public void mouseExited(MouseEvent e){}
 	public void mousePressed(MouseEvent e){}
 	public void mouseReleased(MouseEvent e){}
+	
+	/*
+	 * Starts the logic on the background thread
+	 * @param size The size to initialize the board with first, or 0 to keep the board
+	 * @param clicks The positions to insert queens on
+	 */
+	private void startWork(int size, List<Point> clicks) {
+		busy = true;
+		setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+		for (Point click : clicks) {
+			shownBoard[click.x][click.y] = 1;
+			repaintCell(click.x, click.y);
+		}
+		executor.execute(new LogicWorker(size, clicks));
+		repaintBanner();
+	}
+	
+	/*
+	 * Repaints only the position
+	 */
+	private void repaintCell(int column, int row) {
+		Insets in = getInsets();
+		Rectangle cell = renderer.cellBounds(column, row);
+		repaint(cell.x + in.left, cell.y + in.top, cell.width, cell.height);
+	}
+	
+	private void repaintBanner() {
+		Insets in = getInsets();
+		Rectangle banner = bannerBounds();
+		repaint(banner.x + in.left, banner.y + in.top, banner.width, banner.height);
+	}
+	
+	/*
+	 * The area of the busy indicator, in the top left corner and readable on small tiles too
+	 */
+	private Rectangle bannerBounds() {
+		int unit = Math.max(renderer.getTileSize(), 60);
+		return new Rectangle(unit/4, unit/4, 2*unit, unit/2);
+	}
+	
+	private List<Point> takePendingClicks() {
+		List<Point> clicks = new ArrayList<>(pendingClicks);
+		pendingClicks.clear();
+		return clicks;
+	}
+	
+	/*
+	 * Runs the logic on the background thread and hands the decided positions to the event dispatch thread
+	 */
+	private class LogicWorker extends SwingWorker<int[][], int[]> {
+		private final int size;
+		private final List<Point> clicks;
+		
+		LogicWorker(int size, List<Point> clicks) {
+			this.size = size;
+			this.clicks = clicks;
+		}
+		
+		@Override
+		protected int[][] doInBackground() {
+			if (size > 0)
+				logic.initializeBoard(size);
+			if (!insertAsBatch())
+				insertOneByOne();
+			
+			int[][] board;
+			if (logic instanceof IProgressiveQueensLogic)
+				board = ((IProgressiveQueensLogic) logic).getBoard((c, r, value) -> publish(new int[] { c, r, value }));
+			else
+				board = logic.getBoard();
+			return Boards.copy(board);
+		}
+		
+		/*
+		 * Inserts the clicks as one move if the logic supports it, so the board is updated once
+		 * @return false if the clicks still have to be inserted one by one, also when the batch was rejected
+		 *         because the clicks rule each other out
+		 */
+		private boolean insertAsBatch() {
+			if (clicks.size() < 2 || !(logic instanceof IBatchQueensLogic))
+				return false;
+			
+			int[][] positions = new int[clicks.size()][];
+			for (int i = 0; i < positions.length; i++)
+				positions[i] = new int[] { clicks.get(i).x, clicks.get(i).y };
+			return ((IBatchQueensLogic) logic).insertQueens(positions);
+		}
+		
+		/*
+		 * Inserts the clicks one at a time with the board updated before each of them,
+		 * so a click on a position that an earlier click has ruled out is skipped
+		 */
+		private void insertOneByOne() {
+			for (Point click : clicks)
+				if (logic.getBoard()[click.x][click.y] == 0)
+					logic.insertQueen(click.x, click.y);
+		}
+		
+		@Override
+		protected void process(List<int[]> cells) {
+			for (int[] cell : cells) {
+				shownBoard[cell[0]][cell[1]] = cell[2];
+				repaintCell(cell[0], cell[1]);
+			}
+		}
+		
+		@Override
+		protected void done() {
+			try {
+				int[][] board = get();
+				for (int c = 0; c < board.length; c++)
+					for (int r = 0; r < board.length; r++)
+						if (board[c][r] != shownBoard[c][r])
+							repaintCell(c, r);
+				shownBoard = board;
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			
+			// The positions decided in the meantime may already cover some of the waiting clicks
+			pendingClicks.removeIf(click -> shownBoard[click.x][click.y] != 0);
+			if (pendingClicks.isEmpty()) {
+				busy = false;
+				setCursor(Cursor.getDefaultCursor());
+				repaintBanner();
+			} else {
+				startWork(0, takePendingClicks());
+			}
+		}
+	}
 }
-
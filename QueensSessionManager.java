@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Hosts many concurrent games. Every game is a SharedBDDLogic, so all games of a board size share
+ * one base BDD and only store their own restricted BDD handle and board.
+ *
+ * The games can be played over a small local HTTP endpoint:
+ *   POST   /sessions?size=8                       creates a game and returns its id
+ *   POST   /sessions/{id}/queens?column=0&row=1   inserts a queen and returns the board
+ *   GET    /sessions/{id}/board                   returns the board
+ *   DELETE /sessions/{id}                         ends the game
+ * Boards are returned row by row as in the headless mode, with Q, x and . for 1, -1 and 0.
+ * Sizes above the maximum (16 by default, or the queens.sessions.maxSize property) are rejected,
+ * since the base BDD grows exponentially with the size.
+ * Usage: java QueensSessionManager [port]
+ */
+public class QueensSessionManager {
+
+    private final SharedBDDLogic.Registry registry;
+    private final ConcurrentHashMap<Long, SharedBDDLogic> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final int maxSize;
+
+    public QueensSessionManager(BDDFactoryConfig factoryConfig) {
+        this(factoryConfig, Integer.getInteger("queens.sessions.maxSize", 16));
+    }
+
+    /**
+     * @param maxSize The largest board size a game can be created with
+     */
+    public QueensSessionManager(BDDFactoryConfig factoryConfig, int maxSize) {
+        registry = new SharedBDDLogic.Registry(factoryConfig);
+        this.maxSize = maxSize;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length >= 1 ? Integer.parseInt(args[0]) : 8018;
+        new QueensSessionManager(BDDFactoryConfig.fromSystemProperties())
+            .startServer(port, Executors.newCachedThreadPool());
+        System.out.println("Serving n-queens sessions on http://localhost:" + port + "/sessions");
+    }
+
+    /**
+     * Creates a new game
+     * @param size The size of the board
+     * @return The id of the game
+     */
+    public long createSession(int size) {
+        if (size <= 4)
+            throw new IllegalArgumentException("Board size should be greater than 4");
+        if (size > maxSize)
+            throw new IllegalArgumentException("Board size should be at most " + maxSize);
+
+        var logic = new SharedBDDLogic(registry);
+        logic.initializeBoard(size);
+
+        long id = nextId.getAndIncrement();
+        sessions.put(id, logic);
+        return id;
+    }
+
+    /**
+     * Inserts a queen in the game
+     * @return The board after the move
+     */
+    public int[][] insertQueen(long id, int column, int row) {
+        SharedBDDLogic logic = session(id);
+        synchronized (logic) {
+            int size = logic.getBoard().length;
+            if (column < 0 || column >= size || row < 0 || row >= size)
+                throw new IllegalArgumentException("Position outside the board: " + column + "," + row);
+
+            logic.insertQueen(column, row);
+            return Boards.copy(logic.getBoard());
+        }
+    }
+
+    /**
+     * Returns the board of the game
+     */
+    public int[][] getBoard(long id) {
+        SharedBDDLogic logic = session(id);
+        synchronized (logic) {
+            return Boards.copy(logic.getBoard());
+        }
+    }
+
+    /**
+     * Ends the game and frees its BDD
+     */
+    public void closeSession(long id) {
+        SharedBDDLogic logic = sessions.remove(id);
+        if (logic != null)
+            synchronized (logic) {
+                logic.close();
+            }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public SharedBDDLogic.Registry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Starts the HTTP endpoint
+     * @param port The local port to listen on
+     * @param executor The threads handling the requests
+     * @return The started server
+     */
+    public HttpServer startServer(int port, ExecutorService executor) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/sessions", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        return server;
+    }
+
+    /**
+     * Routes a request to the matching operation
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getQuery());
+            String method = exchange.getRequestMethod();
+
+            if (path.length == 2 && method.equals("POST")) {
+                respond(exchange, 201, Long.toString(createSession(Integer.parseInt(query.get("size")))));
+            } else if (path.length == 4 && path[3].equals("queens") && method.equals("POST")) {
+                int[][] board = insertQueen(Long.parseLong(path[2]), Integer.parseInt(query.get("column")), Integer.parseInt(query.get("row")));
+                respond(exchange, 200, HeadlessRunner.formatBoard(board));
+            } else if (path.length == 4 && path[3].equals("board") && method.equals("GET")) {
+                respond(exchange, 200, HeadlessRunner.formatBoard(getBoard(Long.parseLong(path[2]))));
+            } else if (path.length == 3 && method.equals("DELETE")) {
+                closeSession(Long.parseLong(path[2]));
+                respond(exchange, 204, "");
+            } else {
+                respond(exchange, 404, "Unknown request");
+            }
+        } catch (NoSuchSessionException e) {
+            respond(exchange, 404, e.getMessage());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            respond(exchange, 400, "Bad request: " + e.getMessage());
+        } catch (RuntimeException | Error e) {
+            // Answer before giving up, otherwise the client waits for a response that never comes
+            if (exchange.getResponseCode() == -1)
+                respond(exchange, 500, "Internal error: " + e);
+            if (e instanceof Error)
+                throw (Error) e;
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private Map<String, String> parseQuery(String query) {
+        var parameters = new HashMap<String, String>();
+        if (query == null)
+            return parameters;
+
+        for (String parameter : query.split("&")) {
+            String[] pair = parameter.split("=", 2);
+            parameters.put(pair[0], pair.length == 2 ? pair[1] : "");
+        }
+        return parameters;
+    }
+
+    private SharedBDDLogic session(long id) {
+        SharedBDDLogic logic = sessions.get(id);
+        if (logic == null)
+            throw new NoSuchSessionException(id);
+
+        return logic;
+    }
+
+
+    /**
+     * Thrown when a request refers to a game that does not exist
+     */
+    public static class NoSuchSessionException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public NoSuchSessionException(long id) {
+            super("No session with id " + id);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load test of the session manager: creates many concurrent games, plays random legal moves in all of them
+ * from a pool of client threads, and reports the move throughput and the memory used per game.
+ * Every game of one board size shares the factory of SharedBDDLogic, and every BDD operation holds its lock,
+ * so the BDD work of the games runs one at a time whatever the number of client threads.
+ * Usage: java SessionLoadTest [sessions] [size] [movesPerSession] [clientThreads]
+ */
+public class SessionLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int sessionCount = args.length >= 1 ? Integer.parseInt(args[0]) : 1000;
+        int size = args.length >= 2 ? Integer.parseInt(args[1]) : 8;
+        int movesPerSession = args.length >= 3 ? Integer.parseInt(args[2]) : size / 2;
+        int clientThreads = args.length >= 4 ? Integer.parseInt(args[3]) : 2 * Runtime.getRuntime().availableProcessors();
+
+        var manager = new QueensSessionManager(BDDFactoryConfig.fromSystemProperties());
+        manager.closeSession(manager.createSession(size)); // Build the shared base BDD before measuring
+
+        long heapBefore = usedHeap();
+        ExecutorService clients = Executors.newFixedThreadPool(clientThreads);
+
+        long start = System.nanoTime();
+        var games = new ArrayList<Future<Game>>();
+        for (int i = 0; i < sessionCount; i++) {
+            long seed = i;
+            games.add(clients.submit(() -> play(manager, size, movesPerSession, new Random(seed))));
+        }
+
+        List<Game> played = new ArrayList<>();
+        for (Future<Game> game : games)
+            played.add(game.get());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long moves = 0;
+        for (Game game : played)
+            moves += game.moves;
+
+        long heapAfter = usedHeap();
+        int nodes = manager.getRegistry().getNodeNum(size);
+
+        System.out.printf("%d sessions of %dx%d, %d client threads%n", sessionCount, size, size, clientThreads);
+        System.out.printf("throughput: %.0f moves/s (%d insertQueen calls in %.2f s)%n", moves / seconds, moves, seconds);
+        System.out.printf("limit: all %dx%d games share one factory lock, so the BDD work of the moves ran one at a time, "
+                          + "not on %d threads%n", size, size, clientThreads);
+        System.out.printf("memory: %.1f KB heap per session, %d nodes in the shared factory%n",
+                          (heapAfter - heapBefore) / 1024.0 / sessionCount, nodes);
+
+        for (Game game : played)
+            manager.closeSession(game.id);
+        clients.shutdown();
+    }
+
+    /**
+     * Creates a game and places queens on random open positions
+     * @return The id of the game and the number of queens inserted. Queens forced by the rules are not moves
+     */
+    private static Game play(QueensSessionManager manager, int size, int moves, Random random) {
+        long id = manager.createSession(size);
+        int[][] board = manager.getBoard(id);
+        int inserted = 0;
+
+        for (int move = 0; move < moves; move++) {
+            var open = new ArrayList<int[]>();
+            for (int column = 0; column < size; column++)
+                for (int row = 0; row < size; row++)
+                    if (board[column][row] == 0)
+                        open.add(new int[] { column, row });
+
+            if (open.isEmpty())
+                break;
+
+            int[] position = open.get(random.nextInt(open.size()));
+            board = manager.insertQueen(id, position[0], position[1]);
+            inserted++;
+        }
+        return new Game(id, inserted);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * A game played by a client
+     */
+    private static class Game {
+        final long id;
+        final int moves;
+
+        Game(long id, int moves) {
+            this.id = id;
+            this.moves = moves;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.javabdd.*;
+
+/**
+ * Logic for the n-queens problem where many boards share one base BDD per board size.
+ * A board only owns the handle of its restricted BDD, its placed queens and its evaluated board,
+ * while the nodes live in the factory of the shared base BDD. A factory is not thread safe,
+ * so every operation on a BDD holds the lock of the base it belongs to.
+ */
+public class SharedBDDLogic implements IQueensLogic {
+
+    private final Registry registry;
+    private Base base;
+    private BDD bdd;
+    private int[][] board;
+    private boolean boardDirty;
+    private int placedQueens;
+
+    /**
+     * @param registry The registry holding the shared base BDDs
+     */
+    public SharedBDDLogic(Registry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void initializeBoard(int size) {
+        close();
+
+        base = registry.get(size);
+        synchronized (base) {
+            bdd = base.bdd.id();
+        }
+        board = new int[size][size];
+        boardDirty = true;
+        placedQueens = 0;
+    }
+
+    @Override
+    public int[][] getBoard() {
+        if (boardDirty) {
+            int size = board.length;
+            boolean[] canHaveQueen = new boolean[size * size];
+            boolean[] canBeEmpty = new boolean[size * size];
+
+            synchronized (base) {
+                base.propagator.propagate(bdd, canHaveQueen, canBeEmpty);
+            }
+
+            for (int column = 0; column < size; column++)
+                for (int row = 0; row < size; row++)
+                    if (board[column][row] == 0) {
+                        int var = base.variables[(size * row) + column];
+
+                        if (!canHaveQueen[var])
+                            board[column][row] = -1;
+                        else if (!canBeEmpty[var])
+                            board[column][row] = 1;
+                    }
+
+            boardDirty = false;
+        }
+        return board;
+    }
+
+    @Override
+    public void insertQueen(int column, int row) {
+        if (board[column][row] != 0)
+            return;
+
+        synchronized (base) {
+            bdd.restrictWith(base.factory.ithVar(base.variables[(board.length * row) + column]));
+        }
+        board[column][row] = 1;
+        boardDirty = true;
+        placedQueens++;
+    }
+
+    /**
+     * Returns the number of queens placed on the board
+     */
+    public int getPlacedQueens() {
+        return placedQueens;
+    }
+
+    /**
+     * Frees the BDD of the board. The shared base BDD is kept for other boards
+     */
+    public void close() {
+        if (bdd == null)
+            return;
+
+        synchronized (base) {
+            bdd.free();
+        }
+        bdd = null;
+    }
+
+    /**
+     * Builds and holds one base BDD per board size for all boards created with it
+     */
+    public static class Registry {
+        private final BDDFactoryConfig factoryConfig;
+        private final ConcurrentHashMap<Integer, Base> bases = new ConcurrentHashMap<>();
+
+        public Registry(BDDFactoryConfig factoryConfig) {
+            factoryConfig.requireSeveralFactories("boards sharing a factory per size");
+            this.factoryConfig = factoryConfig;
+        }
+
+        /**
+         * Returns the base BDD of the board size, and builds it the first time the size is used
+         */
+        Base get(int size) {
+            return bases.computeIfAbsent(size, this::build);
+        }
+
+        /**
+         * Returns the number of nodes in use in the factory of the board size, or 0 if it is not built
+         */
+        public int getNodeNum(int size) {
+            Base built = bases.get(size);
+            if (built == null)
+                return 0;
+
+            synchronized (built) {
+                return built.factory.getNodeNum();
+            }
+        }
+
+        private Base build(int size) {
+            BDDFactory factory = factoryConfig.createFactory(size);
+            factory.setVarNum(size * size);
+
+            int[] variables = VariableOrdering.rowMajor().variables(size);
+            BDD bdd = new StructuredBDDBuilder(factory, size, (column, row) -> variables[(size * row) + column]).build();
+
+            return new Base(factory, bdd, variables, new SupportPropagator(factory));
+        }
+    }
+
+    /**
+     * A base BDD of one board size with the factory it lives in. Its monitor guards the factory
+     */
+    static class Base {
+        private final BDDFactory factory;
+        private final BDD bdd;
+        private final int[] variables;
+        private final SupportPropagator propagator;
+
+        Base(BDDFactory factory, BDD bdd, int[] variables, SupportPropagator propagator) {
+            this.factory = factory;
+            this.bdd = bdd;
+            this.variables = variables;
+            this.propagator = propagator;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.sf.javabdd.*;
+
+/**
+ * Walks the paths to TRUE of a queens BDD one at a time and returns each complete solution.
+ * The nodes are copied into int arrays up front, so the walk does not touch the factory and only
+ * keeps the current path in memory, never the list of solutions.
+ * Variables skipped by a path are don't cares and are expanded to both values,
+ * except for positions with a placed queen, which the BDD no longer mentions after being restricted.
+ */
+public class SolutionIterator implements Iterator<int[]> {
+
+    private static final int FALSE = 0;
+    private static final int TRUE = 1;
+
+    private final int size;
+    private final int varNum;
+    private final int[] levelOfVar;  // Level in the factory's order of each variable id
+    private final int[] varAtLevel;
+    private final int[] positionOfVar; // Board index (size * row) + column of each variable id
+    private final boolean[] placed;  // Placed queens, indexed by variable id
+
+    // Node table with index 0 as FALSE and 1 as TRUE
+    private final int[] nodeLevel;
+    private final int[] nodeLow;
+    private final int[] nodeHigh;
+
+    // The current path: node and next branch to try at each level
+    private final int[] pathNode;
+    private final int[] pathBranch;
+    private final boolean[] value;
+    private int depth;
+    private boolean nextReady;
+
+    /**
+     * @param factory The factory of the BDD
+     * @param bdd The BDD to enumerate. It is not consumed
+     * @param size The size of the board
+     * @param variables Entry (size * row) + column is the variable id of that position
+     * @param placedVars The variable ids of the placed queens
+     */
+    public SolutionIterator(BDDFactory factory, BDD bdd, int size, int[] variables, int[] placedVars) {
+        this.size = size;
+        this.varNum = factory.varNum();
+
+        levelOfVar = new int[varNum];
+        varAtLevel = new int[varNum];
+        for (int level = 0; level < varNum; level++) {
+            varAtLevel[level] = factory.level2Var(level);
+            levelOfVar[varAtLevel[level]] = level;
+        }
+
+        positionOfVar = new int[varNum];
+        for (int position = 0; position < variables.length; position++)
+            positionOfVar[variables[position]] = position;
+
+        placed = new boolean[varNum];
+        for (int var : placedVars)
+            placed[var] = true;
+
+        int nodeCount = bdd.nodeCount() + 2;
+        nodeLevel = new int[nodeCount];
+        nodeLow = new int[nodeCount];
+        nodeHigh = new int[nodeCount];
+        nodeLevel[FALSE] = varNum;
+        nodeLevel[TRUE] = varNum;
+
+        pathNode = new int[varNum + 1];
+        pathBranch = new int[varNum + 1];
+        value = new boolean[varNum];
+
+        var indices = new HashMap<BDD, Integer>();
+        pathNode[0] = copyNodes(bdd, indices);
+        for (BDD node : indices.keySet())
+            node.free();
+
+        depth = pathNode[0] == FALSE ? -1 : 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!nextReady)
+            nextReady = advance();
+
+        return nextReady;
+    }
+
+    /**
+     * Returns the next solution
+     * @return The column of the queen in each row
+     */
+    @Override
+    public int[] next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        nextReady = false;
+
+        int[] columns = new int[size];
+        Arrays.fill(columns, -1);
+        for (int var = 0; var < varNum; var++)
+            if (value[var])
+                columns[positionOfVar[var] / size] = positionOfVar[var] % size;
+
+        return columns;
+    }
+
+    /**
+     * Moves the path to the next assignment that reaches TRUE
+     * @return false if there are no more assignments
+     */
+    private boolean advance() {
+        while (depth >= 0) {
+            if (depth == varNum) {
+                depth--; // Step back, so the next call continues with the next branch
+                return true;
+            }
+
+            int branch = pathBranch[depth]++;
+            if (branch > 1) {
+                pathBranch[depth] = 0;
+                depth--;
+                continue;
+            }
+
+            int node = pathNode[depth];
+            int var = varAtLevel[depth];
+            int child;
+
+            if (nodeLevel[node] > depth) {
+                // The variable is skipped on this path
+                if (placed[var] && branch == 0)
+                    continue;
+                child = node;
+            } else {
+                child = branch == 0 ? nodeLow[node] : nodeHigh[node];
+            }
+
+            if (child == FALSE)
+                continue;
+
+            value[var] = branch == 1;
+            pathNode[depth + 1] = child;
+            pathBranch[depth + 1] = 0;
+            depth++;
+        }
+        return false;
+    }
+
+    /**
+     * Copies the node and its descendants to the node table
+     * @return The index of the node in the table
+     */
+    private int copyNodes(BDD node, HashMap<BDD, Integer> indices) {
+        if (node.isZero())
+            return FALSE;
+        if (node.isOne())
+            return TRUE;
+
+        Integer known = indices.get(node);
+        if (known != null)
+            return known;
+
+        BDD low = node.low();
+        BDD high = node.high();
+        int lowIndex = copyNodes(low, indices);
+        int highIndex = copyNodes(high, indices);
+        low.free();
+        high.free();
+
+        int index = indices.size() + 2;
+        nodeLevel[index] = levelOfVar[node.var()];
+        nodeLow[index] = lowIndex;
+        nodeHigh[index] = highIndex;
+        indices.put(node.id(), index);
+
+        return index;
+    }
+}
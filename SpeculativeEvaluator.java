@@ -0,0 +1,319 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.sf.javabdd.*;
+
+/**
+ * Computes the boards of the possible next moves in the background while the player is thinking.
+ * Like in ParallelEvaluator every worker owns a factory, since a factory is not thread safe. The BDD without queens
+ * is copied into it once per board size, so a move only hands over the placed queens: the worker restricts its copy
+ * with them, takes the open positions in turn, restricts with a queen on the position and derives the board in one
+ * traversal with a SupportPropagator. The boards are kept until the next real move, up to a memory cap,
+ * and a move to one of them needs no evaluation of its own.
+ *
+ * Every real move cancels the speculation: the boards are dropped, and the workers stop after the position they
+ * are on and free the BDD of the cancelled board.
+ */
+public class SpeculativeEvaluator {
+
+    private final ExecutorService pool;
+    private final Worker[] workers;
+    private final long memoryCapBytes;
+
+    private final Object lock = new Object();
+    private final Map<Integer, int[][]> boards = new HashMap<>(); // Guarded by lock
+    private int generation; // Guarded by lock. Counts the speculations started
+    private final ArrayList<Future<?>> running = new ArrayList<>(); // Guarded by lock
+    private BDD serializedBase;
+    private String serialized;
+
+    private final LongAdder computed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    /**
+     * @param threads The number of workers
+     * @param memoryCapBytes The memory the speculated boards may take together
+     * @param factoryConfig The settings of the factories owned by the workers
+     */
+    public SpeculativeEvaluator(int threads, long memoryCapBytes, BDDFactoryConfig factoryConfig) {
+        factoryConfig.requireSeveralFactories("the speculation");
+        this.memoryCapBytes = memoryCapBytes;
+        pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "queens-speculation");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY); // The player's own moves come first
+            return thread;
+        });
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++)
+            workers[i] = new Worker(factoryConfig);
+    }
+
+    public int getThreads() {
+        return workers.length;
+    }
+
+    /**
+     * Starts computing the board after a queen on each open position. Cancels the speculation before it
+     * @param factory The factory of the BDD
+     * @param base The BDD with the rules and without queens. It is serialized on the calling thread when it changes
+     * @param placedVars The variable ids of the placed queens
+     * @param board The current board. Only positions with value 0 are speculated on
+     * @param variables Entry (size * row) + column is the variable id of that position
+     * @param metrics The metrics to record the time of every speculated board in
+     */
+    public void start(BDDFactory factory, BDD base, int[] placedVars, int[][] board, int[] variables, LogicMetrics metrics) {
+        int size = board.length;
+        long boardBytes = 16L + size * (16L + 4L * size);
+        int capacity = (int) Math.min(Integer.MAX_VALUE, memoryCapBytes / boardBytes);
+
+        var open = new ArrayList<Integer>();
+        for (int row = 0; row < size && open.size() < capacity; row++)
+            for (int column = 0; column < size && open.size() < capacity; column++)
+                if (board[column][row] == 0)
+                    open.add((size * row) + column);
+        if (open.isEmpty())
+            return;
+
+        if (base != serializedBase) {
+            serialized = BDDSnapshot.toText(factory, base);
+            serializedBase = base;
+        }
+
+        var speculation = new Speculation(serialized, factory.varNum(), placedVars.clone(), Boards.copy(board),
+                                          open.stream().mapToInt(Integer::intValue).toArray(), variables, metrics);
+        synchronized (lock) {
+            cancelLocked();
+            speculation.generation = generation;
+            for (Worker worker : workers)
+                running.add(pool.submit(() -> worker.run(speculation)));
+        }
+    }
+
+    /**
+     * Returns the speculated board after a queen on the position and cancels the speculation
+     * @return A board owned by the caller, or null if the position was not speculated on in time
+     */
+    public int[][] take(int column, int row, int size) {
+        synchronized (lock) {
+            int[][] board = boards.get((size * row) + column);
+            cancelLocked();
+            return board;
+        }
+    }
+
+    /**
+     * Drops the speculated boards and stops the workers after the position they are on
+     */
+    public void cancel() {
+        synchronized (lock) {
+            cancelLocked();
+        }
+    }
+
+    private void cancelLocked() {
+        generation++;
+        boards.clear();
+        for (Future<?> task : running)
+            task.cancel(false);
+        running.clear();
+    }
+
+    /**
+     * Stops the threads and releases the factories of the workers
+     */
+    public void shutdown() {
+        cancel();
+        pool.shutdown();
+        for (Worker worker : workers)
+            worker.done();
+    }
+
+    /**
+     * Returns the number of boards computed in the background
+     */
+    public long getComputedCount() {
+        return computed.sum();
+    }
+
+    /**
+     * Returns the number of positions that were not speculated on because a move came first
+     */
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    /**
+     * Stores a board if it still belongs to the current speculation
+     */
+    private boolean offer(Speculation speculation, int position, int[][] board) {
+        synchronized (lock) {
+            if (speculation.generation != generation)
+                return false;
+
+            boards.put(position, board);
+            return true;
+        }
+    }
+
+    private boolean isCurrent(Speculation speculation) {
+        synchronized (lock) {
+            return speculation.generation == generation;
+        }
+    }
+
+
+    /**
+     * The state a speculation starts from. The open positions are handed out to the workers in turn
+     */
+    private static class Speculation {
+        final String serialized;
+        final int varNum;
+        final int[] placedVars;
+        final int[][] board;
+        final int[] positions;
+        final int[] variables;
+        final LogicMetrics metrics;
+        final AtomicInteger next = new AtomicInteger();
+        int generation;
+
+        Speculation(String serialized, int varNum, int[] placedVars, int[][] board, int[] positions, int[] variables,
+                    LogicMetrics metrics) {
+            this.serialized = serialized;
+            this.varNum = varNum;
+            this.placedVars = placedVars;
+            this.board = board;
+            this.positions = positions;
+            this.variables = variables;
+            this.metrics = metrics;
+        }
+    }
+
+    /**
+     * Owns a factory with a copy of the BDD without queens, and speculates on it.
+     * The tasks of a cancelled and a new speculation can overlap, so a worker only runs one of them at a time
+     */
+    private class Worker {
+        private final BDDFactoryConfig factoryConfig;
+        private BDDFactory factory;
+        private SupportPropagator propagator;
+        private String loaded; // The serialized BDD that base is a copy of
+        private BDD base;
+
+        Worker(BDDFactoryConfig factoryConfig) {
+            this.factoryConfig = factoryConfig;
+        }
+
+        synchronized void run(Speculation speculation) {
+            if (!isCurrent(speculation))
+                return;
+
+            try {
+                loadBase(speculation);
+            } catch (IOException e) {
+                System.err.println("Could not load the BDD to speculate on: " + e);
+                return;
+            }
+
+            BDD queens = factory.one();
+            for (int var : speculation.placedVars)
+                queens.andWith(factory.ithVar(var));
+            BDD bdd = base.id().restrictWith(queens);
+
+            try {
+                int size = speculation.board.length;
+                int index;
+                while ((index = speculation.next.getAndIncrement()) < speculation.positions.length) {
+                    if (!isCurrent(speculation)) {
+                        cancelled.increment();
+                        continue;
+                    }
+
+                    long start = speculation.metrics.speculation.start();
+                    int position = speculation.positions[index];
+                    int[][] board = boardAfterQueen(speculation, bdd, position % size, position / size);
+                    if (offer(speculation, position, board)) {
+                        computed.increment();
+                        speculation.metrics.speculation.record(start);
+                    }
+                }
+            } finally {
+                bdd.free();
+            }
+        }
+
+        /**
+         * Returns the board after a queen is placed on the position
+         */
+        private int[][] boardAfterQueen(Speculation speculation, BDD bdd, int column, int row) {
+            int size = speculation.board.length;
+            int[] variables = speculation.variables;
+            BDD restricted = bdd.id().restrictWith(factory.ithVar(variables[(size * row) + column]));
+
+            boolean[] canHaveQueen = new boolean[factory.varNum()];
+            boolean[] canBeEmpty = new boolean[factory.varNum()];
+            propagator.propagate(restricted, canHaveQueen, canBeEmpty);
+            restricted.free();
+
+            int[][] board = Boards.copy(speculation.board);
+            board[column][row] = 1;
+            for (int c = 0; c < size; c++)
+                for (int r = 0; r < size; r++)
+                    if (board[c][r] == 0) {
+                        int var = variables[(size * r) + c];
+                        if (!canHaveQueen[var])
+                            board[c][r] = -1;
+                        else if (!canBeEmpty[var])
+                            board[c][r] = 1;
+                    }
+
+            return board;
+        }
+
+        /**
+         * Copies the BDD without queens into the factory, unless it is already there
+         */
+        private void loadBase(Speculation speculation) throws IOException {
+            if (speculation.serialized == loaded && factory != null)
+                return;
+
+            prepareFactory(speculation.varNum);
+            if (base != null)
+                base.free();
+            base = null;
+            loaded = null;
+            base = BDDSnapshot.fromText(factory, speculation.serialized);
+            loaded = speculation.serialized;
+        }
+
+        /**
+         * Creates a factory with the number of variables, unless the current one already has it
+         */
+        private void prepareFactory(int varNum) {
+            if (factory != null && factory.varNum() == varNum)
+                return;
+
+            done();
+            int size = (int) Math.round(Math.sqrt(varNum));
+            factory = factoryConfig.createFactory(size);
+            factory.setVarNum(varNum);
+            propagator = new SupportPropagator(factory);
+        }
+
+        synchronized void done() {
+            if (factory != null)
+                factory.done();
+            factory = null;
+            propagator = null;
+            base = null;
+            loaded = null;
+        }
+    }
+}
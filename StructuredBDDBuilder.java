@@ -0,0 +1,220 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntBinaryOperator;
+
+import net.sf.javabdd.*;
+
+/**
+ * Builds the n-queens BDD from row, column and diagonal constraints instead of per position implications.
+ * Every constraint is built directly in linear size and the constraints are conjoined smallest first,
+ * which keeps the intermediate diagrams small.
+ */
+public class StructuredBDDBuilder {
+
+    private final BDDFactory factory;
+    private final int size;
+    private final IntBinaryOperator variableOf;
+    private final BDDScope.References references;
+    private int peakNodeCount;
+
+    /**
+     * @param factory The factory to create the BDD in. The variables must already be allocated
+     * @param size The size of the board
+     * @param variableOf Translates a column and a row to the variable id of the position
+     */
+    public StructuredBDDBuilder(BDDFactory factory, int size, IntBinaryOperator variableOf) {
+        this(factory, size, variableOf, new BDDScope.References());
+    }
+
+    /**
+     * @param factory The factory to create the BDD in. The variables must already be allocated
+     * @param size The size of the board
+     * @param variableOf Translates a column and a row to the variable id of the position
+     * @param references The counters of the owner of the factory, to count the intermediate handles in
+     */
+    public StructuredBDDBuilder(BDDFactory factory, int size, IntBinaryOperator variableOf, BDDScope.References references) {
+        this.factory = factory;
+        this.size = size;
+        this.variableOf = variableOf;
+        this.references = references;
+    }
+
+    /**
+     * Builds the BDD that is true exactly for the solutions of the n-queens problem
+     * @return A binary decision diagram
+     */
+    public BDD build() {
+        // The node count walks the whole BDD, so it is counted once when a constraint is queued
+        var constraints = new PriorityQueue<Constraint>(Comparator.comparingInt(constraint -> constraint.nodeCount));
+
+        for (int i = 0; i < size; i++) {
+            constraints.add(new Constraint(exactlyOne(rowVariables(i))));
+            constraints.add(new Constraint(exactlyOne(columnVariables(i))));
+        }
+
+        for (int[] diagonal : diagonalVariables())
+            if (diagonal.length > 1)
+                constraints.add(new Constraint(atMostOne(diagonal)));
+
+        return conjoinSmallestFirst(constraints);
+    }
+
+    /**
+     * Returns the highest number of nodes in use in the factory while the BDD was built
+     */
+    public int getPeakNodeCount() {
+        return peakNodeCount;
+    }
+
+    /**
+     * Conjoins the two smallest BDDs until only one is left
+     */
+    private BDD conjoinSmallestFirst(PriorityQueue<Constraint> constraints) {
+        if (constraints.isEmpty())
+            return factory.one();
+
+        while (constraints.size() > 1) {
+            BDD smallest = constraints.poll().bdd;
+            smallest.andWith(constraints.poll().bdd);
+            constraints.add(new Constraint(smallest));
+            peakNodeCount = Math.max(peakNodeCount, factory.getNodeNum());
+        }
+
+        return constraints.poll().bdd;
+    }
+
+    /************************************
+     ******** Constraint Functions ******
+     ***********************************/
+
+    /**
+     * Creates the constraint that exactly one of the variables is true
+     * @param varIds The variable ids
+     * @return A binary decision diagram
+     */
+    private BDD exactlyOne(int[] varIds) {
+        BDD[] counts = countUpToOne(varIds);
+        counts[0].free();
+        return counts[1];
+    }
+
+    /**
+     * Creates the constraint that at most one of the variables is true
+     * @param varIds The variable ids
+     * @return A binary decision diagram
+     */
+    private BDD atMostOne(int[] varIds) {
+        BDD[] counts = countUpToOne(varIds);
+        return counts[0].orWith(counts[1]);
+    }
+
+    /**
+     * Creates the BDDs for none and exactly one of the variables being true.
+     * The variables are handled from the bottom of the variable order, so every step only adds a node on top
+     * @param varIds The variable ids
+     * @return An array with the BDD for none at index 0 and exactly one at index 1
+     */
+    private BDD[] countUpToOne(int[] varIds) {
+        BDD none = factory.one();
+        BDD one = factory.zero();
+
+        for (int var : sortByLevelDescending(varIds)) {
+            try (BDDScope scope = new BDDScope(references)) {
+                BDD variable = scope.track(factory.ithVar(var));
+                BDD nextOne = variable.ite(none, scope.track(one));
+                BDD nextNone = variable.not().andWith(none);
+
+                one = nextOne;
+                none = nextNone;
+            }
+        }
+
+        return new BDD[] { none, one };
+    }
+
+    /*******************************
+    ******** UTIL FUNCTIONS ********
+    *******************************/
+
+    /**
+     * Sorts the variable ids so the variable lowest in the order comes first
+     */
+    private int[] sortByLevelDescending(int[] varIds) {
+        int[] levels = new int[varIds.length];
+        for (int i = 0; i < varIds.length; i++)
+            levels[i] = factory.var2Level(varIds[i]);
+
+        Arrays.sort(levels);
+
+        int[] sorted = new int[levels.length];
+        for (int i = 0; i < levels.length; i++)
+            sorted[i] = factory.level2Var(levels[levels.length - 1 - i]);
+
+        return sorted;
+    }
+
+    /**
+     * Gets the variable ids of the row
+     */
+    private int[] rowVariables(int row) {
+        int[] varIds = new int[size];
+        for (int column = 0; column < size; column++)
+            varIds[column] = variableOf.applyAsInt(column, row);
+
+        return varIds;
+    }
+
+    /**
+     * Gets the variable ids of the column
+     */
+    private int[] columnVariables(int column) {
+        int[] varIds = new int[size];
+        for (int row = 0; row < size; row++)
+            varIds[row] = variableOf.applyAsInt(column, row);
+
+        return varIds;
+    }
+
+    /**
+     * Gets the variable ids of every diagonal and anti-diagonal on the board
+     */
+    private List<int[]> diagonalVariables() {
+        var diagonals = new ArrayList<int[]>();
+
+        for (int offset = -(size - 1); offset < size; offset++) {
+            int length = size - Math.abs(offset);
+            int[] diagonal = new int[length];
+            int[] antiDiagonal = new int[length];
+            int firstColumn = Math.max(0, offset);
+            int firstRow = Math.max(0, -offset);
+
+            for (int i = 0; i < length; i++) {
+                // Diagonal going down to the right where column - row = offset
+                diagonal[i] = variableOf.applyAsInt(firstColumn + i, firstRow + i);
+                // Anti-diagonal going down to the left, mirrored around the vertical center line
+                antiDiagonal[i] = variableOf.applyAsInt(size - 1 - (firstColumn + i), firstRow + i);
+            }
+
+            diagonals.add(diagonal);
+            diagonals.add(antiDiagonal);
+        }
+
+        return diagonals;
+    }
+
+    /**
+     * A constraint waiting to be conjoined, with its node count
+     */
+    private static class Constraint {
+        final int nodeCount;
+        final BDD bdd;
+
+        Constraint(BDD bdd) {
+            this.nodeCount = bdd.nodeCount();
+            this.bdd = bdd;
+        }
+    }
+}
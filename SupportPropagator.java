@@ -0,0 +1,114 @@
+import java.util.ArrayDeque;
+import java.util.HashSet;
+
+import net.sf.javabdd.*;
+
+/**
+ * Derives the domain of every variable of a BDD in a single traversal of its node graph.
+ *
+ * A variable can be true in some satisfying assignment if a node labelled with the variable
+ * has a high child different from FALSE, or if the variable is skipped by an edge on a path to TRUE
+ * (in that case the variable is a don't care on that path). The same holds for false and the low child.
+ * Since every node of a reduced BDD, except FALSE, reaches TRUE, it is enough to look at each node once.
+ */
+public class SupportPropagator {
+
+    private final BDDFactory factory;
+
+    public SupportPropagator(BDDFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Computes for each variable if it can be true and if it can be false in a satisfying assignment of the BDD
+     * @param root The BDD to analyse. It is not consumed
+     * @param canBeTrue Output array indexed by variable id. Set to true if the variable can be true
+     * @param canBeFalse Output array indexed by variable id. Set to true if the variable can be false
+     */
+    public void propagate(BDD root, boolean[] canBeTrue, boolean[] canBeFalse) {
+        int varNum = factory.varNum();
+        boolean[] highAtLevel = new boolean[varNum];
+        boolean[] lowAtLevel = new boolean[varNum];
+        int[] skipped = new int[varNum + 1]; // Difference array of levels skipped by an edge
+
+        if (!root.isZero()) {
+            markSkipped(skipped, -1, levelOf(root, varNum));
+            traverse(root, varNum, highAtLevel, lowAtLevel, skipped);
+        }
+
+        int skippedEdges = 0;
+        for (int level = 0; level < varNum; level++) {
+            skippedEdges += skipped[level];
+            int var = factory.level2Var(level);
+            canBeTrue[var] = highAtLevel[level] || skippedEdges > 0;
+            canBeFalse[var] = lowAtLevel[level] || skippedEdges > 0;
+        }
+    }
+
+    /**
+     * Visits every internal node reachable from the root once and records its outgoing edges
+     */
+    private void traverse(BDD root, int varNum, boolean[] highAtLevel, boolean[] lowAtLevel, int[] skipped) {
+        var visited = new HashSet<BDD>();
+        var stack = new ArrayDeque<BDD>();
+
+        if (!root.isOne()) {
+            BDD start = root.id();
+            visited.add(start);
+            stack.push(start);
+        }
+
+        while (!stack.isEmpty()) {
+            BDD node = stack.pop();
+            int level = levelOf(node, varNum);
+
+            BDD high = node.high();
+            if (!high.isZero()) {
+                highAtLevel[level] = true;
+                markSkipped(skipped, level, levelOf(high, varNum));
+            }
+            visit(high, visited, stack);
+
+            BDD low = node.low();
+            if (!low.isZero()) {
+                lowAtLevel[level] = true;
+                markSkipped(skipped, level, levelOf(low, varNum));
+            }
+            visit(low, visited, stack);
+        }
+
+        for (BDD node : visited)
+            node.free();
+    }
+
+    /**
+     * Pushes the child on the stack if it has not been seen before, otherwise frees the handle
+     */
+    private void visit(BDD child, HashSet<BDD> visited, ArrayDeque<BDD> stack) {
+        if (child.isZero() || child.isOne() || !visited.add(child)) {
+            child.free();
+            return;
+        }
+        stack.push(child);
+    }
+
+    /**
+     * Marks the levels strictly between the two given levels as skipped
+     */
+    private void markSkipped(int[] skipped, int fromLevel, int toLevel) {
+        if (toLevel - fromLevel > 1) {
+            skipped[fromLevel + 1]++;
+            skipped[toLevel]--;
+        }
+    }
+
+    /**
+     * Returns the level of the node. The terminals are placed below the last variable
+     */
+    private int levelOf(BDD node, int varNum) {
+        if (node.isZero() || node.isOne())
+            return varNum;
+
+        return factory.var2Level(node.var());
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Decides which BDD variable represents each position on the board.
+ * Variable ids are also the initial order of the variables in the factory, so the ordering
+ * decides the initial shape and size of the BDD.
+ */
+public interface VariableOrdering {
+
+    /**
+     * Returns the variable ids of the positions
+     * @param size The size of the board
+     * @return An array where entry (size * row) + column is the variable id of that position
+     */
+    int[] variables(int size);
+
+    /**
+     * Orders the positions row by row, as the positions are read
+     */
+    static VariableOrdering rowMajor() {
+        return size -> IntStream.range(0, size * size).toArray();
+    }
+
+    /**
+     * Orders the positions column by column
+     */
+    static VariableOrdering columnMajor() {
+        return size -> {
+            int[] variables = new int[size * size];
+            for (int column = 0; column < size; column++)
+                for (int row = 0; row < size; row++)
+                    variables[(size * row) + column] = (size * column) + row;
+
+            return variables;
+        };
+    }
+
+    /**
+     * Orders the positions anti-diagonal by anti-diagonal, starting in the top left corner,
+     * so positions that attack each other diagonally are close in the order
+     */
+    static VariableOrdering diagonalInterleaved() {
+        return size -> {
+            int[] variables = new int[size * size];
+            int next = 0;
+            for (int sum = 0; sum <= 2 * (size - 1); sum++)
+                for (int column = Math.max(0, sum - size + 1); column <= Math.min(sum, size - 1); column++)
+                    variables[(size * (sum - column)) + column] = next++;
+
+            return variables;
+        };
+    }
+
+    /**
+     * Uses a fixed permutation of the variables
+     * @param permutation Entry (size * row) + column is the variable id of that position
+     * @throws IllegalArgumentException if the permutation does not match the board size
+     */
+    static VariableOrdering permutation(int[] permutation) {
+        int[] copy = permutation.clone();
+        int[] sorted = copy.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++)
+            if (sorted[i] != i)
+                throw new IllegalArgumentException("Not a permutation of the variables 0.." + (sorted.length - 1));
+
+        return size -> {
+            if (copy.length != size * size)
+                throw new IllegalArgumentException("The permutation has " + copy.length + " entries, but the board has " + (size * size));
+
+            return copy.clone();
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package queens.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Calls an IQueensLogic implementation of the game. The game lives in the default package, which JMH
+ * benchmarks cannot be placed in and named packages cannot import, so the methods are looked up once by name
+ */
+final class QueensLogic {
+
+    private final Object logic;
+    private final MethodHandle initializeBoard;
+    private final MethodHandle insertQueen;
+    private final MethodHandle getBoard;
+
+    private QueensLogic(Object logic) throws ReflectiveOperationException {
+        this.logic = logic;
+        var lookup = MethodHandles.publicLookup();
+        Class<?> type = Class.forName("IQueensLogic");
+        initializeBoard = lookup.findVirtual(type, "initializeBoard", MethodType.methodType(void.class, int.class))
+                                .bindTo(logic);
+        insertQueen = lookup.findVirtual(type, "insertQueen", MethodType.methodType(void.class, int.class, int.class))
+                            .bindTo(logic);
+        getBoard = lookup.findVirtual(type, "getBoard", MethodType.methodType(int[][].class)).bindTo(logic);
+    }
+
+    /**
+     * Returns Boards.firstSolution of the game, the solution every benchmark harness places its queens from
+     * @return The column of the queen in each row
+     */
+    static int[] firstSolution(int size) throws ReflectiveOperationException {
+        return (int[]) Class.forName("Boards").getMethod("firstSolution", int.class).invoke(null, size);
+    }
+
+    /**
+     * Creates the logic with its constructor without parameters
+     * @param className The class name of an IQueensLogic implementation
+     */
+    static QueensLogic create(String className) throws ReflectiveOperationException {
+        return new QueensLogic(Class.forName(className).getConstructor().newInstance());
+    }
+
+    void initializeBoard(int size) throws Throwable {
+        initializeBoard.invokeExact(size);
+    }
+
+    void insertQueen(int column, int row) throws Throwable {
+        insertQueen.invokeExact(column, row);
+    }
+
+    int[][] getBoard() throws Throwable {
+        return (int[][]) getBoard.invokeExact();
+    }
+
+    /**
+     * Releases the threads and BDD factories of the logic, if it holds any
+     */
+    void close() throws Exception {
+        if (logic instanceof AutoCloseable)
+            ((AutoCloseable) logic).close();
+    }
+
+    @Override
+    public String toString() {
+        return logic.getClass().getName();
+    }
+}
@@ -0,0 +1,87 @@
+package queens.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks the hot paths of every IQueensLogic implementation: initializeBoard, a sequence of insertQueen calls
+ * each followed by getBoard as the GUI does, and getBoard without moves.
+ * Throughput and SampleTime give the operations per second and the latency percentiles, and the gc profiler
+ * of the build gives the allocation rate.
+ *
+ * These are the benchmarks of record for the hot paths of the logics. LogicBenchmark in the default package
+ * compares the strategies inside Group18Logic with each other and is not meant to track regressions.
+ *
+ * Run with: gradle jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueensLogicBenchmarks {
+
+    @Param({ "Group18Logic", "CompactBDDLogic", "BitboardLogic", "PropagationLogic", "PrimitiveLogic" })
+    public String logicName;
+
+    @Param({ "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15", "16" })
+    public int size;
+
+    private QueensLogic logic;
+    private int[] solution;
+
+    @Setup(Level.Trial)
+    public void createLogic() throws Throwable {
+        logic = QueensLogic.create(logicName);
+        solution = QueensLogic.firstSolution(size);
+        logic.initializeBoard(size);
+        logic.getBoard();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeLogic() throws Exception {
+        logic.close();
+    }
+
+    /**
+     * A new board, including the construction of the BDD where the logic does not cache it
+     */
+    @Benchmark
+    public int[][] initializeBoard() throws Throwable {
+        logic.initializeBoard(size);
+        return logic.getBoard();
+    }
+
+    /**
+     * getBoard when no queen was placed since the last call
+     */
+    @Benchmark
+    public int[][] cachedBoard() throws Throwable {
+        return logic.getBoard();
+    }
+
+    /**
+     * The queens of a solution placed one by one, each followed by getBoard.
+     * The board is initialized before every sequence and that time is not measured
+     */
+    @Benchmark
+    public int[][] insertSequence(NewBoard newBoard) throws Throwable {
+        int[][] board = null;
+        for (int row = 0; row < size; row++) {
+            logic.insertQueen(solution[row], row);
+            board = logic.getBoard();
+        }
+        return board;
+    }
+
+    /**
+     * Initializes the board of the benchmark before every insert sequence
+     */
+    @State(Scope.Thread)
+    public static class NewBoard {
+        @Setup(Level.Invocation)
+        public void initialize(QueensLogicBenchmarks benchmark) throws Throwable {
+            benchmark.logic.initializeBoard(benchmark.size);
+            benchmark.logic.getBoard();
+        }
+    }
+}